@@ -0,0 +1,30 @@
+package com.chess.bench;
+
+import com.chess.logic.Position;
+
+/**
+ * Fixed suite of positions shared by all benchmarks, so numbers stay comparable between runs.
+ */
+final class BenchmarkPositions {
+    static final String START = "start";
+    static final String MIDDLEGAME = "middlegame";
+    static final String KIWIPETE = "kiwipete";
+    static final String IN_CHECK = "in-check";
+    static final String ROOK_ENDGAME = "rook-endgame";
+    static final String PAWN_ENDGAME = "pawn-endgame";
+
+    private BenchmarkPositions() {
+    }
+
+    static String fen(String name) {
+        return switch (name) {
+            case START -> Position.START_FEN;
+            case MIDDLEGAME -> "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP1B1PPP/R2QKB1R w KQ - 0 8";
+            case KIWIPETE -> "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+            case IN_CHECK -> "rnbqkbnr/ppp2ppp/8/1B1pp3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 1 3";
+            case ROOK_ENDGAME -> "8/5pk1/6p1/3R3p/7P/6P1/r4PK1/8 w - - 0 40";
+            case PAWN_ENDGAME -> "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+            default -> throw new IllegalArgumentException("Unknown benchmark position: " + name);
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.chess.bench;
+
+import com.chess.logic.GameLogic;
+import com.chess.model.Move;
+import com.chess.model.PieceColor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Rules-engine hot paths as driven by the UI. Each benchmark walks every legal move of the
+ * position, so the numbers are per position rather than per move. Run with {@code -prof gc}
+ * to get allocation rates alongside ops/s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameLogicBenchmark {
+    @Param({BenchmarkPositions.START, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.KIWIPETE,
+            BenchmarkPositions.IN_CHECK, BenchmarkPositions.ROOK_ENDGAME, BenchmarkPositions.PAWN_ENDGAME})
+    public String position;
+
+    private GameLogic gameLogic;
+    private PieceColor toMove;
+    private PieceColor opponent;
+    private final List<Move> rootMoves = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        gameLogic = new GameLogic();
+        gameLogic.loadPosition(BenchmarkPositions.fen(position));
+        toMove = gameLogic.currentPlayer;
+        opponent = toMove == PieceColor.WHITE ? PieceColor.BLACK : PieceColor.WHITE;
+        rootMoves.clear();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                rootMoves.addAll(gameLogic.calculateValidMoves(row, col));
+            }
+        }
+    }
+
+    @Benchmark
+    public void movePieceUndo(Blackhole bh) {
+        for (Move move : rootMoves) {
+            bh.consume(gameLogic.movePiece(move));
+            bh.consume(gameLogic.undoLastMove());
+        }
+    }
+
+    /** Valid moves of every square after each root move; subtract {@link #movePieceUndo} for the generator share. */
+    @Benchmark
+    public void calculateValidMoves(Blackhole bh) {
+        for (Move move : rootMoves) {
+            gameLogic.movePiece(move);
+            for (int row = 0; row < 8; row++) {
+                for (int col = 0; col < 8; col++) {
+                    bh.consume(gameLogic.calculateValidMoves(row, col));
+                }
+            }
+            gameLogic.undoLastMove();
+        }
+    }
+
+    @Benchmark
+    public void isKingInCheck(Blackhole bh) {
+        bh.consume(gameLogic.isKingInCheck(toMove));
+        bh.consume(gameLogic.isKingInCheck(opponent));
+    }
+
+    /** The end-of-game test switchPlayer runs after every move. */
+    @Benchmark
+    public void isCheckmateIsStalemate(Blackhole bh) {
+        for (Move move : rootMoves) {
+            gameLogic.movePiece(move);
+            bh.consume(gameLogic.isCheckmate(opponent));
+            bh.consume(gameLogic.isStalemate(opponent));
+            gameLogic.undoLastMove();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.chess.bench;
+
+import com.chess.logic.MoveGenerator;
+import com.chess.logic.Perft;
+import com.chess.logic.Position;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Raw bitboard generator throughput, without the GameLogic and Move object layer on top.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGeneratorBenchmark {
+    @Param({BenchmarkPositions.START, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.KIWIPETE,
+            BenchmarkPositions.IN_CHECK, BenchmarkPositions.ROOK_ENDGAME, BenchmarkPositions.PAWN_ENDGAME})
+    public String position;
+
+    private Position pos;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final Perft perft = new Perft();
+
+    @Setup
+    public void setup() {
+        pos = Position.fromFen(BenchmarkPositions.fen(position));
+    }
+
+    @Benchmark
+    public int generateLegal() {
+        return MoveGenerator.generateLegal(pos, moves);
+    }
+
+    @Benchmark
+    public long perftDepth3() {
+        return perft.count(pos, 3);
+    }
+}
@@ -0,0 +1,62 @@
+package com.chess.bench;
+
+import com.chess.logic.GameLogic;
+import com.chess.model.Move;
+import com.chess.ui.ChessboardPanel;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Paints the board, with a piece selected and its move markers shown, into an offscreen image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    @Param({BenchmarkPositions.START, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ROOK_ENDGAME})
+    public String position;
+
+    private ChessboardPanel panel;
+    private BufferedImage image;
+
+    @Setup
+    public void setup() {
+        GameLogic gameLogic = new GameLogic();
+        gameLogic.loadPosition(BenchmarkPositions.fen(position));
+        selectFirstMovablePiece(gameLogic);
+
+        panel = new ChessboardPanel();
+        panel.setGameLogic(gameLogic);
+        panel.setSize(panel.getPreferredSize());
+        image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static void selectFirstMovablePiece(GameLogic gameLogic) {
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                List<Move> moves = gameLogic.calculateValidMoves(row, col);
+                if (!moves.isEmpty()) {
+                    gameLogic.handleSquareSelection(row, col);
+                    return;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public BufferedImage paintComponent() {
+        Graphics2D g = image.createGraphics();
+        try {
+            panel.paint(g);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,38 @@
+package com.chess.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PackedMoveTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"", "e2", "e2e5", "e7e5", "e2e4x", "e2e4q", "zz", "i2i4", "e0e1", "E2E4", "e1g1", "0000"})
+    void parseUciRejectsIllegalInput(String text) {
+        assertEquals(PackedMove.NONE, PackedMove.parseUci(Position.fromFen(Position.START_FEN), text));
+    }
+
+    @Test
+    void parseUciRequiresThePromotionPiece() {
+        Position pos = Position.fromFen("4k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals(PackedMove.NONE, PackedMove.parseUci(pos, "a7a8"));
+        assertEquals(PackedMove.NONE, PackedMove.parseUci(pos, "a7a8k"));
+        int move = PackedMove.parseUci(pos, "a7a8n");
+        assertEquals(Position.KNIGHT, PackedMove.promotionType(move));
+        assertEquals("a7a8n", PackedMove.toUci(move));
+    }
+
+    @Test
+    void parseUciRoundTripsLegalMoves() {
+        Position pos = Position.fromFen(PerftTest.KIWIPETE);
+        MoveList legal = new MoveList();
+        MoveGenerator.generateLegal(pos, legal);
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            assertNotEquals(PackedMove.NONE, move);
+            assertEquals(move, PackedMove.parseUci(pos, PackedMove.toUci(move)));
+        }
+    }
+}
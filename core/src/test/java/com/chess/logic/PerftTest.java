@@ -0,0 +1,40 @@
+package com.chess.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class PerftTest {
+    static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    void startPosition() {
+        Position pos = Position.fromFen(Position.START_FEN);
+        Perft perft = new Perft();
+        assertEquals(20, perft.count(pos, 1));
+        assertEquals(400, perft.count(pos, 2));
+        assertEquals(8902, perft.count(pos, 3));
+        assertEquals(197281, perft.count(pos, 4));
+        assertEquals(4865609, perft.count(pos, 5));
+        assertEquals(Position.START_FEN, pos.toFen());
+    }
+
+    @Test
+    void kiwipete() {
+        Position pos = Position.fromFen(KIWIPETE);
+        Perft perft = new Perft();
+        assertEquals(48, perft.count(pos, 1));
+        assertEquals(2039, perft.count(pos, 2));
+        assertEquals(97862, perft.count(pos, 3));
+        assertEquals(4085603, perft.count(pos, 4));
+        assertEquals(KIWIPETE, pos.toFen());
+    }
+
+    @Test
+    void cachedAndParallelCountsAgree() {
+        Position pos = Position.fromFen(KIWIPETE);
+        assertEquals(4085603, new Perft(16).count(pos, 4));
+        assertEquals(4085603, new Perft(16).count(pos, 4, ForkJoinPool.commonPool()));
+    }
+}
@@ -0,0 +1,55 @@
+package com.chess.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class SanTest {
+    @ParameterizedTest
+    @ValueSource(strings = {
+            Position.START_FEN,
+            PerftTest.KIWIPETE,
+            // Promotions with and without capture, and a check from one.
+            "r3k2r/1P6/8/8/8/8/6p1/R3K2R w KQkq - 0 1",
+            // En passant, and two knights and two rooks that need disambiguating.
+            "4k3/8/8/3pP3/8/1N3N2/8/R3K2R w - d6 0 1",
+            "7k/8/8/8/8/8/8/1R1R3K w - - 0 1"
+    })
+    void everyLegalMoveRoundTrips(String fen) {
+        Position pos = Position.fromFen(fen);
+        MoveList legal = new MoveList();
+        MoveGenerator.generateLegal(pos, legal);
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            String san = San.format(pos, move);
+            assertEquals(move, San.parse(pos, san), san);
+            assertEquals(fen, pos.toFen());
+        }
+    }
+
+    @Test
+    void formatsChecksMatesAndCastling() {
+        Position kiwipete = Position.fromFen(PerftTest.KIWIPETE);
+        assertEquals("O-O", San.format(kiwipete, San.parse(kiwipete, "O-O")));
+        assertEquals("O-O-O", San.format(kiwipete, San.parse(kiwipete, "0-0-0")));
+
+        // The pawn on g2 attacks f1, so White cannot castle short.
+        Position pos = Position.fromFen("r3k2r/1P6/8/8/8/8/6p1/R3K2R w KQkq - 0 1");
+        assertEquals(PackedMove.NONE, San.parse(pos, "O-O"));
+        assertEquals("bxa8=Q+", San.format(pos, PackedMove.parseUci(pos, "b7a8q")));
+
+        Position mate = Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8#", San.format(mate, PackedMove.parseUci(mate, "a1a8")));
+    }
+
+    @Test
+    void rejectsIllegalAndAmbiguousMoves() {
+        Position pos = Position.fromFen("7k/8/8/8/8/8/8/1R1R3K w - - 0 1");
+        assertEquals(PackedMove.NONE, San.parse(pos, "Rc1"));
+        assertEquals(PackedMove.NONE, San.parse(pos, "Ra9"));
+        assertEquals(PackedMove.NONE, San.parse(pos, ""));
+        assertEquals(PackedMove.parseUci(pos, "b1c1"), San.parse(pos, "Rbc1"));
+    }
+}
@@ -0,0 +1,198 @@
+package com.chess.pgn;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.chess.logic.MoveGenerator;
+import com.chess.logic.MoveList;
+import com.chess.logic.Position;
+import com.chess.pgn.PositionIndex.Hit;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PositionIndexTest {
+    // Small enough that a few hundred games fill many segments and force merges.
+    private static final int BUFFER_ENTRIES = 256;
+
+    @TempDir
+    Path dir;
+
+    private final Random random = new Random(42);
+    private final List<PgnGame> added = new ArrayList<>();
+    private final Map<Long, List<Hit>> expected = new HashMap<>();
+
+    @Test
+    void findsEveryPosition() throws IOException {
+        try (PositionIndexBuilder builder = new PositionIndexBuilder(dir, BUFFER_ENTRIES, Integer.MAX_VALUE)) {
+            addGames(builder, 300);
+        }
+        assertMatches();
+    }
+
+    @Test
+    void addsToAnExistingIndex() throws IOException {
+        try (PositionIndexBuilder builder = new PositionIndexBuilder(dir, BUFFER_ENTRIES, Integer.MAX_VALUE)) {
+            addGames(builder, 100);
+        }
+        try (PositionIndexBuilder builder = new PositionIndexBuilder(dir, BUFFER_ENTRIES, Integer.MAX_VALUE)) {
+            assertEquals(100, builder.games());
+            addGames(builder, 150);
+        }
+        assertMatches();
+    }
+
+    @Test
+    void reopensAfterCrash() throws IOException {
+        try (PositionIndexBuilder builder = new PositionIndexBuilder(dir, BUFFER_ENTRIES, Integer.MAX_VALUE)) {
+            addGames(builder, 200);
+        }
+        List<Path> segments = segmentFiles();
+        Path first = segments.get(0);
+        int games = added.size();
+
+        // What a crash can leave behind: game data past the committed count, a half-written
+        // segment, the inputs of a merge whose output was written, and a segment of games that
+        // were never committed. A torn segment covered by others is skipped too.
+        append(dir.resolve(PositionIndex.GAMES_FILE), new byte[100]);
+        append(dir.resolve(PositionIndex.OFFSETS_FILE), new byte[24]);
+        Files.write(dir.resolve("00000000-00000001.seg.tmp"), new byte[10]);
+        Path torn = dir.resolve(String.format("%08x-%08x", games - 1, games) + PositionIndex.SEGMENT_SUFFIX);
+        Files.write(torn, Arrays.copyOf(Files.readAllBytes(first), 100));
+        split(PositionIndex.segments(dir).stream().filter(segment -> segment.level > 0).findFirst().orElseThrow());
+        Path uncommitted = dir.resolve(String.format("%08x-%08x", games, games + 5) + PositionIndex.SEGMENT_SUFFIX);
+        Files.copy(first, uncommitted);
+        rewriteRange(uncommitted, games, games + 5);
+        assertMatches();
+
+        try (PositionIndexBuilder builder = new PositionIndexBuilder(dir, BUFFER_ENTRIES, Integer.MAX_VALUE)) {
+            assertEquals(games, builder.games());
+            assertFalse(Files.exists(uncommitted));
+            assertFalse(Files.exists(torn));
+            try (Stream<Path> files = Files.list(dir)) {
+                assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+            }
+            addGames(builder, 100);
+        }
+        assertMatches();
+    }
+
+    @Test
+    void reportsGamesNoSegmentHolds() throws IOException {
+        try (PositionIndexBuilder builder = new PositionIndexBuilder(dir, BUFFER_ENTRIES, Integer.MAX_VALUE)) {
+            addGames(builder, 50);
+        }
+        List<Path> segments = segmentFiles();
+        Path last = segments.get(segments.size() - 1);
+        Files.write(last, Arrays.copyOf(Files.readAllBytes(last), PositionIndex.HEADER_BYTES + 40));
+        assertThrows(IOException.class, () -> PositionIndex.open(dir).close());
+        assertThrows(IOException.class, () -> new PositionIndexBuilder(dir, BUFFER_ENTRIES, Integer.MAX_VALUE).close());
+    }
+
+    @Test
+    void sortIsStableBySignedKey() {
+        long[] keys = {5, -1, Long.MIN_VALUE, 5, Long.MAX_VALUE, -1, 0};
+        long[] values = {0, 1, 2, 3, 4, 5, 6};
+        PositionIndexBuilder.sort(keys, values, keys.length);
+        assertArrayEquals(new long[]{Long.MIN_VALUE, -1, -1, 0, 5, 5, Long.MAX_VALUE}, keys);
+        assertArrayEquals(new long[]{2, 1, 5, 6, 0, 3, 4}, values);
+    }
+
+    private void addGames(PositionIndexBuilder builder, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            PgnGame game = randomGame(added.size());
+            int id = builder.addGame(game);
+            assertEquals(added.size(), id);
+            added.add(game);
+            Position pos = game.startPosition();
+            record(pos.key(), id, 0);
+            for (int ply = 0; ply < game.moves().length; ply++) {
+                pos.make(game.moves()[ply]);
+                record(pos.key(), id, ply + 1);
+            }
+        }
+    }
+
+    private void record(long key, int game, int ply) {
+        expected.computeIfAbsent(key, k -> new ArrayList<>()).add(new Hit(game, ply));
+    }
+
+    // Short random games, so that the opening positions recur across many of them.
+    private PgnGame randomGame(int id) {
+        Position pos = Position.fromFen(Position.START_FEN);
+        MoveList legal = new MoveList();
+        int[] moves = new int[random.nextInt(30)];
+        int plies = 0;
+        while (plies < moves.length && MoveGenerator.generateLegal(pos, legal) > 0) {
+            moves[plies] = legal.get(random.nextInt(Math.min(legal.size(), 4)));
+            pos.make(moves[plies++]);
+        }
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("White", "White " + id);
+        tags.put("Black", "Black " + id);
+        tags.put("Result", "*");
+        return new PgnGame(tags, Arrays.copyOf(moves, plies), true);
+    }
+
+    private void assertMatches() throws IOException {
+        try (PositionIndex index = PositionIndex.open(dir)) {
+            assertEquals(added.size(), index.games());
+            for (Map.Entry<Long, List<Hit>> entry : expected.entrySet()) {
+                long key = entry.getKey();
+                List<Hit> hits = entry.getValue();
+                assertEquals(hits.size(), index.count(key));
+                assertEquals(hits, index.find(key, 0, Integer.MAX_VALUE));
+                int skip = hits.size() / 2;
+                assertEquals(hits.subList(skip, Math.min(hits.size(), skip + 3)), index.find(key, skip, 3));
+            }
+            assertEquals(0, index.count(0x123456789L));
+            assertEquals(List.of(), index.find(0x123456789L, 0, 10));
+            for (int id = 0; id < added.size(); id += 7) {
+                PgnGame game = index.game(id);
+                assertEquals(added.get(id).tags(), game.tags());
+                assertArrayEquals(added.get(id).moves(), game.moves());
+            }
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(PositionIndex.SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    // Leaves a copy of a merged segment under the name of a narrower one it covers, as the
+    // inputs of an interrupted merge would be.
+    private void split(PositionIndex.Segment segment) throws IOException {
+        int end = segment.firstGame + 1;
+        Path input = dir.resolve(String.format("%08x-%08x", segment.firstGame, end) + PositionIndex.SEGMENT_SUFFIX);
+        Files.copy(segment.path, input);
+        rewriteRange(input, segment.firstGame, end);
+    }
+
+    private static void rewriteRange(Path segment, int firstGame, int endGame) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putInt(0, firstGame).putInt(4, endGame), 20);
+        }
+    }
+
+    private static void append(Path file, byte[] bytes) throws IOException {
+        Files.write(file, bytes, StandardOpenOption.APPEND);
+    }
+}
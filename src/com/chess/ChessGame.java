@@ -47,7 +47,7 @@ public class ChessGame extends JFrame {
     }
 
     public void startGame(String timeControl, String gameType, String gameMode, String aiLevel) {
-        gameLogic = new GameLogic(this);
+        gameLogic = new GameLogic();
         gameContainerPanel.initializeGame(gameLogic, timeControl, gameType, gameMode, aiLevel);
 
         cardLayout.show(mainPanel, "GAME");
@@ -65,6 +65,7 @@ public class ChessGame extends JFrame {
 
     public void handleGameOver(String message) {
         gameContainerPanel.stopTimers();
+        gameContainerPanel.cancelAiMove();
         Object[] options = {"New Game", "Exit"};
         int choice = JOptionPane.showOptionDialog(
                 this,
@@ -0,0 +1,53 @@
+package com.chess.engine;
+
+import com.chess.logic.PieceSquareTables;
+import com.chess.logic.Position;
+
+/**
+ * Static evaluation in centipawns from the point of view of the side to move.
+ * <p>
+ * The score is tapered: the midgame and endgame piece-square scores the position keeps up to
+ * date are blended by how much material is left, so evaluating costs the same at any node.
+ * Pawn structure and king shelter come from a {@link PawnTable}.
+ */
+public final class Evaluator {
+    /** Endgame bonus per square the enemy king is further than the own king from a passed pawn's path. */
+    private static final int PASSED_KING_DISTANCE = 5;
+
+    private Evaluator() {
+    }
+
+    public static int evaluate(Position pos, PawnTable pawns) {
+        int slot = pawns.probe(pos);
+        int whiteKing = pos.kingSquare(Position.WHITE), blackKing = pos.kingSquare(Position.BLACK);
+        int midgame = pos.midgameScore() + pawns.midgame(slot);
+        int endgame = pos.endgameScore() + pawns.endgame(slot);
+        if (whiteKing >= 0 && blackKing >= 0) {
+            midgame -= pawns.shieldPenalty(slot, Position.WHITE, whiteKing & 7);
+            midgame += pawns.shieldPenalty(slot, Position.BLACK, blackKing & 7);
+            endgame += passedPawnKings(pos, pawns.passed(slot), whiteKing, blackKing);
+        }
+
+        // Promotions can push the phase past its starting value.
+        int phase = Math.min(pos.phase(), PieceSquareTables.MAX_PHASE);
+        int score = (midgame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return pos.sideToMove() == Position.WHITE ? score : -score;
+    }
+
+    // Kings decide passed pawn races, so this part depends on more than the pawns and is not cached.
+    private static int passedPawnKings(Position pos, long passed, int whiteKing, int blackKing) {
+        int score = 0;
+        for (long pawns = passed; pawns != 0; pawns &= pawns - 1) {
+            int sq = Long.numberOfTrailingZeros(pawns);
+            boolean white = Position.colorOf(pos.pieceAt(sq)) == Position.WHITE;
+            int stop = white ? sq - 8 : sq + 8;
+            int lead = distance(white ? blackKing : whiteKing, stop) - distance(white ? whiteKing : blackKing, stop);
+            score += (white ? 1 : -1) * PASSED_KING_DISTANCE * lead;
+        }
+        return score;
+    }
+
+    private static int distance(int a, int b) {
+        return Math.max(Math.abs((a >>> 3) - (b >>> 3)), Math.abs((a & 7) - (b & 7)));
+    }
+}
@@ -0,0 +1,77 @@
+package com.chess.engine;
+
+import com.chess.logic.PackedMove;
+import com.chess.logic.Position;
+import java.util.Arrays;
+
+/**
+ * What a search thread has learned about quiet moves from its own cutoffs: two killer moves per
+ * ply, a history score per moving piece and target square, and for each previous move, the
+ * reply that last refuted it. {@link MovePicker} orders quiet moves with these.
+ */
+final class MoveHistory {
+    // History scores are kept within this bound by scaling each update down as they approach it.
+    private static final int MAX_HISTORY = 1 << 14;
+
+    private final int[][] killers = new int[Search.MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+    private final int[][] countermoves = new int[12][64];
+
+    /** Forgets the killers, which belong to the previous position, and ages the history. */
+    void newSearch() {
+        for (int[] pair : killers) {
+            Arrays.fill(pair, PackedMove.NONE);
+        }
+        for (int[] scores : history) {
+            for (int sq = 0; sq < 64; sq++) {
+                scores[sq] /= 2;
+            }
+        }
+    }
+
+    int killer(int ply, int slot) {
+        return killers[ply][slot];
+    }
+
+    /** The stored reply to the move that led to the position, or {@link PackedMove#NONE}. */
+    int countermove(Position pos) {
+        int last = pos.lastMove();
+        if (last == PackedMove.NONE) return PackedMove.NONE;
+        int to = PackedMove.to(last);
+        int piece = pos.pieceAt(to);
+        return piece == Position.EMPTY ? PackedMove.NONE : countermoves[piece][to];
+    }
+
+    int score(Position pos, int move) {
+        return history[pos.pieceAt(PackedMove.from(move))][PackedMove.to(move)];
+    }
+
+    /**
+     * Records a quiet move that caused a cutoff, with the position as it was before the move.
+     * The quiet moves searched before it without a cutoff lose what it gains.
+     */
+    void cutoff(Position pos, int move, int ply, int depth, int[] triedQuiets, int tried) {
+        int[] pair = killers[ply];
+        if (pair[0] != move) {
+            pair[1] = pair[0];
+            pair[0] = move;
+        }
+        int last = pos.lastMove();
+        if (last != PackedMove.NONE) {
+            int to = PackedMove.to(last);
+            int piece = pos.pieceAt(to);
+            if (piece != Position.EMPTY) countermoves[piece][to] = move;
+        }
+        int bonus = Math.min(depth * depth, MAX_HISTORY / 8);
+        update(pos, move, bonus);
+        for (int i = 0; i < tried; i++) {
+            update(pos, triedQuiets[i], -bonus);
+        }
+    }
+
+    private void update(Position pos, int move, int bonus) {
+        int[] scores = history[pos.pieceAt(PackedMove.from(move))];
+        int to = PackedMove.to(move);
+        scores[to] += bonus - scores[to] * Math.abs(bonus) / MAX_HISTORY;
+    }
+}
@@ -0,0 +1,154 @@
+package com.chess.engine;
+
+import com.chess.logic.MoveGenerator;
+import com.chess.logic.MoveList;
+import com.chess.logic.PackedMove;
+import com.chess.logic.PieceSquareTables;
+import com.chess.logic.Position;
+
+/**
+ * Hands out the legal moves of a node one at a time, in the order most likely to cut off: the
+ * hash move, captures by most valuable victim then least valuable attacker, the two killers,
+ * the countermove, the remaining quiet moves by history score, and last the captures that
+ * {@link StaticExchange} says lose material. Each group is generated only when the moves before
+ * it have been searched, so a node that cuts off early never generates its quiet moves at all.
+ * A picker is reused for every node at its ply.
+ * <p>
+ * For quiescence search the picker hands out only the captures that do not lose material.
+ */
+final class MovePicker {
+    private static final int HASH = 0, GENERATE_CAPTURES = 1, CAPTURES = 2, KILLER_1 = 3, KILLER_2 = 4,
+            COUNTERMOVE = 5, GENERATE_QUIETS = 6, QUIETS = 7, BAD_CAPTURES = 8, DONE = 9;
+
+    private final MoveHistory history;
+    private final MoveList moves = new MoveList();
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+    private final int[] badCaptures = new int[MoveGenerator.MAX_MOVES];
+    private int badCount;
+    private boolean quiescence;
+    private Position pos;
+    private int ply;
+    private int stage;
+    private int next;
+    private int hashMove;
+    private int killer1;
+    private int killer2;
+    private int countermove;
+
+    MovePicker(MoveHistory history) {
+        this.history = history;
+    }
+
+    void reset(Position pos, int hashMove, int ply) {
+        this.pos = pos;
+        this.ply = ply;
+        this.hashMove = hashMove;
+        killer1 = killer2 = countermove = PackedMove.NONE;
+        badCount = 0;
+        quiescence = false;
+        stage = HASH;
+    }
+
+    /** Prepares to hand out only the captures, and promotions, that do not lose material. */
+    void resetQuiescence(Position pos) {
+        reset(pos, PackedMove.NONE, 0);
+        quiescence = true;
+        stage = GENERATE_CAPTURES;
+    }
+
+    /** The next move to search, or {@link PackedMove#NONE} when all have been handed out. */
+    int next() {
+        while (true) {
+            switch (stage) {
+                case HASH -> {
+                    stage = GENERATE_CAPTURES;
+                    if (hashMove != PackedMove.NONE && MoveGenerator.isLegal(pos, hashMove)) return hashMove;
+                    hashMove = PackedMove.NONE;
+                }
+                case GENERATE_CAPTURES -> {
+                    MoveGenerator.generateLegal(pos, moves, MoveGenerator.CAPTURES);
+                    for (int i = 0; i < moves.size(); i++) {
+                        scores[i] = mvvLva(moves.get(i));
+                    }
+                    next = 0;
+                    stage = CAPTURES;
+                }
+                case CAPTURES -> {
+                    int move = best();
+                    if (move == PackedMove.NONE) {
+                        stage = quiescence ? DONE : KILLER_1;
+                    } else if (StaticExchange.atLeast(pos, move, 0)) {
+                        return move;
+                    } else if (!quiescence) {
+                        badCaptures[badCount++] = move;
+                    }
+                }
+                case KILLER_1 -> {
+                    stage = KILLER_2;
+                    killer1 = history.killer(ply, 0);
+                    if (isQuietCandidate(killer1)) return killer1;
+                    killer1 = PackedMove.NONE;
+                }
+                case KILLER_2 -> {
+                    stage = COUNTERMOVE;
+                    killer2 = history.killer(ply, 1);
+                    if (killer2 != killer1 && isQuietCandidate(killer2)) return killer2;
+                    killer2 = PackedMove.NONE;
+                }
+                case COUNTERMOVE -> {
+                    stage = GENERATE_QUIETS;
+                    countermove = history.countermove(pos);
+                    if (countermove != killer1 && countermove != killer2 && isQuietCandidate(countermove)) return countermove;
+                    countermove = PackedMove.NONE;
+                }
+                case GENERATE_QUIETS -> {
+                    MoveGenerator.generateLegal(pos, moves, MoveGenerator.QUIETS);
+                    for (int i = 0; i < moves.size(); i++) {
+                        scores[i] = history.score(pos, moves.get(i));
+                    }
+                    next = 0;
+                    stage = QUIETS;
+                }
+                case QUIETS -> {
+                    int move = best();
+                    if (move != PackedMove.NONE) return move;
+                    next = 0;
+                    stage = BAD_CAPTURES;
+                }
+                case BAD_CAPTURES -> {
+                    if (next < badCount) return badCaptures[next++];
+                    stage = DONE;
+                }
+                default -> {
+                    return PackedMove.NONE;
+                }
+            }
+        }
+    }
+
+    // Selection sort one step at a time: most nodes only ever look at the first few moves.
+    private int best() {
+        while (next < moves.size()) {
+            int bestIndex = next;
+            for (int i = next + 1; i < moves.size(); i++) {
+                if (scores[i] > scores[bestIndex]) bestIndex = i;
+            }
+            int move = moves.get(bestIndex);
+            moves.set(bestIndex, moves.get(next));
+            scores[bestIndex] = scores[next];
+            next++;
+            if (move != hashMove && move != killer1 && move != killer2 && move != countermove) return move;
+        }
+        return PackedMove.NONE;
+    }
+
+    private boolean isQuietCandidate(int move) {
+        return move != PackedMove.NONE && move != hashMove
+                && !MoveGenerator.isCapture(pos, move) && MoveGenerator.isLegal(pos, move);
+    }
+
+    private int mvvLva(int move) {
+        int attacker = Position.typeOf(pos.pieceAt(PackedMove.from(move)));
+        return StaticExchange.captureGain(pos, move) * 16 - PieceSquareTables.PIECE_VALUES[attacker] / 100;
+    }
+}
@@ -0,0 +1,132 @@
+package com.chess.engine;
+
+import com.chess.logic.MoveGenerator;
+import com.chess.logic.MoveList;
+import com.chess.logic.PackedMove;
+import com.chess.logic.Position;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Read-only opening book, memory-mapped rather than read so that opening it costs the same
+ * for any size and only the pages a probe touches are ever loaded.
+ * <p>
+ * File layout, big-endian: a 16-byte header holding {@link #MAGIC}, a format version and the
+ * entry count, followed by 16-byte entries of Zobrist key (long), {@link PackedMove} (int) and
+ * weight (int). Entries are sorted by signed key, so all moves of a position are adjacent and
+ * found by binary search. {@link OpeningBookBuilder} writes this format.
+ */
+public final class OpeningBook {
+    public static final int MAGIC = 0x43424B31; // "CBK1"
+    public static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 16;
+
+    /** System property holding the path of the book the AI plays from. */
+    public static final String PATH_PROPERTY = "chess.book";
+    public static final String DEFAULT_PATH = "book.bin";
+    private static final System.Logger LOG = System.getLogger(OpeningBook.class.getName());
+
+    /** One book move for a position and how often it should be chosen relative to the others. */
+    public record Entry(int move, int weight) {
+    }
+
+    private final MappedByteBuffer buffer;
+    private final int entries;
+
+    private OpeningBook(MappedByteBuffer buffer, int entries) {
+        this.buffer = buffer;
+        this.entries = entries;
+    }
+
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) throw new IOException("Not an opening book: " + path);
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) throw new IOException("Not an opening book: " + path);
+            long count = buffer.getLong(8);
+            if (count < 0 || HEADER_BYTES + count * ENTRY_BYTES != size) throw new IOException("Truncated opening book: " + path);
+            return new OpeningBook(buffer, (int) count);
+        }
+    }
+
+    /**
+     * The book at the {@value #PATH_PROPERTY} path, or null if there is none there or, with the
+     * reason logged, if it cannot be read.
+     */
+    public static OpeningBook configured() {
+        Path path = Path.of(System.getProperty(PATH_PROPERTY, DEFAULT_PATH));
+        if (!Files.isRegularFile(path)) return null;
+        try {
+            return open(path);
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Opening book not loaded: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public int size() {
+        return entries;
+    }
+
+    /** All book moves stored for a key, most heavily weighted first. */
+    public List<Entry> entries(long key) {
+        List<Entry> found = new ArrayList<>();
+        for (int i = firstIndex(key); i < entries && keyAt(i) == key; i++) {
+            int offset = HEADER_BYTES + i * ENTRY_BYTES;
+            found.add(new Entry(buffer.getInt(offset + 8), buffer.getInt(offset + 12)));
+        }
+        return found;
+    }
+
+    /**
+     * A book move for the position, picked at random in proportion to the weights, or
+     * {@link PackedMove#NONE} when the position is not in the book. Moves that are not legal,
+     * which can only come from a key collision, are never returned.
+     */
+    public int pick(Position pos) {
+        List<Entry> candidates = entries(pos.key());
+        if (candidates.isEmpty()) return PackedMove.NONE;
+        MoveList legal = new MoveList();
+        MoveGenerator.generateLegal(pos, legal);
+        long total = 0;
+        for (Entry entry : candidates) {
+            if (legal.contains(entry.move())) total += entry.weight();
+        }
+        if (total <= 0) return PackedMove.NONE;
+        long roll = ThreadLocalRandom.current().nextLong(total);
+        for (Entry entry : candidates) {
+            if (!legal.contains(entry.move())) continue;
+            roll -= entry.weight();
+            if (roll < 0) return entry.move();
+        }
+        return PackedMove.NONE;
+    }
+
+    private long keyAt(int index) {
+        return buffer.getLong(HEADER_BYTES + index * ENTRY_BYTES);
+    }
+
+    // Lowest index whose key is not below the given one.
+    private int firstIndex(long key) {
+        int low = 0, high = entries;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
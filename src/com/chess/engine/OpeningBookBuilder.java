@@ -0,0 +1,127 @@
+package com.chess.engine;
+
+import com.chess.logic.Position;
+import com.chess.pgn.PgnGame;
+import com.chess.pgn.PgnReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles PGN games into an {@link OpeningBook}. Every position in the first plies of each
+ * game is recorded with the move played from it. A move is weighted 2 for every game the side
+ * playing it won and 1 for every draw or unknown result; moves that only ever lost are left out.
+ */
+public final class OpeningBookBuilder {
+    public static final int DEFAULT_MAX_PLIES = 24;
+
+    private final int maxPlies;
+    private final int minGames;
+    // key -> (move -> {games, weight})
+    private final Map<Long, Map<Integer, int[]>> positions = new HashMap<>();
+    private int games;
+
+    public OpeningBookBuilder(int maxPlies, int minGames) {
+        this.maxPlies = maxPlies;
+        this.minGames = minGames;
+    }
+
+    public int games() {
+        return games;
+    }
+
+    /** Adds all games of a PGN file. Games with a move that cannot be read stop at that move. */
+    public void addPgn(Path pgn) throws IOException {
+        try (PgnReader reader = new PgnReader(pgn, Runtime.getRuntime().availableProcessors(), maxPlies)) {
+            while (reader.hasNext()) {
+                addGame(reader.next());
+            }
+        }
+    }
+
+    private void addGame(PgnGame game) {
+        games++;
+        Position pos;
+        try {
+            pos = game.startPosition();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        String result = game.result();
+        for (int move : game.moves()) {
+            int weight = switch (result) {
+                case "1-0" -> pos.sideToMove() == Position.WHITE ? 2 : 0;
+                case "0-1" -> pos.sideToMove() == Position.BLACK ? 2 : 0;
+                default -> 1;
+            };
+            int[] stats = positions.computeIfAbsent(pos.key(), k -> new HashMap<>()).computeIfAbsent(move, m -> new int[2]);
+            stats[0]++;
+            stats[1] = (int) Math.min(Integer.MAX_VALUE, (long) stats[1] + weight);
+            pos.make(move);
+        }
+    }
+
+    /** Writes the book, sorted by key and, within a position, by descending weight. */
+    public int write(Path out) throws IOException {
+        List<long[]> rows = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, int[]>> position : positions.entrySet()) {
+            for (Map.Entry<Integer, int[]> move : position.getValue().entrySet()) {
+                int[] stats = move.getValue();
+                if (stats[0] >= minGames && stats[1] > 0) {
+                    rows.add(new long[]{position.getKey(), move.getKey(), stats[1]});
+                }
+            }
+        }
+        long[][] sorted = rows.toArray(new long[0][]);
+        Arrays.sort(sorted, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+        try (OutputStream file = Files.newOutputStream(out);
+             DataOutputStream data = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            data.writeInt(OpeningBook.MAGIC);
+            data.writeInt(OpeningBook.VERSION);
+            data.writeLong(sorted.length);
+            for (long[] row : sorted) {
+                data.writeLong(row[0]);
+                data.writeInt((int) row[1]);
+                data.writeInt((int) row[2]);
+            }
+        }
+        return sorted.length;
+    }
+
+    /** Usage: {@code OpeningBookBuilder out.bin games.pgn... [-plies n] [-min games]}. */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningBookBuilder out.bin games.pgn... [-plies n] [-min games]");
+            System.exit(1);
+        }
+        int plies = DEFAULT_MAX_PLIES;
+        int min = 1;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-plies" -> plies = Integer.parseInt(args[++i]);
+                case "-min" -> min = Integer.parseInt(args[++i]);
+                default -> inputs.add(Path.of(args[i]));
+            }
+        }
+
+        long start = System.nanoTime();
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, min);
+        for (Path input : inputs) {
+            builder.addPgn(input);
+        }
+        int written = builder.write(Path.of(args[0]));
+        System.out.println("Games: " + builder.games());
+        System.out.println("Entries: " + written);
+        System.out.println("Time: " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,157 @@
+package com.chess.engine;
+
+import com.chess.logic.Bitboards;
+import com.chess.logic.Position;
+import java.util.Arrays;
+
+/**
+ * Cache of pawn-structure evaluation keyed by {@link Position#pawnKey()}. Pawns move far less
+ * often than pieces, so most nodes find their structure already scored here.
+ * <p>
+ * An entry holds the doubled, isolated, backward and passed pawn score for the midgame and the
+ * endgame, the passed pawns themselves, and for each side and each file its king could stand on,
+ * the penalty for the pawn shield in front of it. Each search thread owns its own table.
+ */
+public final class PawnTable {
+    public static final int DEFAULT_BITS = 14;
+
+    private static final int DOUBLED_MG = 10, DOUBLED_EG = 20;
+    private static final int ISOLATED_MG = 10, ISOLATED_EG = 15;
+    private static final int BACKWARD_MG = 8, BACKWARD_EG = 10;
+    /** Passed pawn bonus by rank counted from the pawn's own side, 0 to 7. */
+    private static final int[] PASSED_MG = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_EG = {0, 10, 15, 25, 45, 70, 110, 0};
+    // Shield penalty per file next to the king: pawn one step ahead, two steps ahead, missing.
+    private static final int SHIELD_ADVANCED = 10, SHIELD_MISSING = 25;
+
+    private final long[] keys;
+    private final int[] midgame;
+    private final int[] endgame;
+    private final long[] passed;
+    // One byte per king file, for White then Black.
+    private final long[][] shields;
+    private final int mask;
+    private long probes;
+    private long hits;
+
+    public PawnTable(int bits) {
+        int size = 1 << bits;
+        keys = new long[size];
+        // A zero key is a real one, that of a board without pawns, so empty slots need another.
+        Arrays.fill(keys, -1L);
+        midgame = new int[size];
+        endgame = new int[size];
+        passed = new long[size];
+        shields = new long[2][size];
+        mask = size - 1;
+    }
+
+    /** The slot holding the position's pawn structure, scored and stored first if it was missing. */
+    public int probe(Position pos) {
+        long key = pos.pawnKey();
+        int slot = (int) key & mask;
+        probes++;
+        if (keys[slot] == key) {
+            hits++;
+            return slot;
+        }
+        keys[slot] = key;
+        score(pos, slot);
+        return slot;
+    }
+
+    /** Pawn-structure score for the midgame, from White's point of view. */
+    public int midgame(int slot) {
+        return midgame[slot];
+    }
+
+    public int endgame(int slot) {
+        return endgame[slot];
+    }
+
+    /** Passed pawns of both sides. */
+    public long passed(int slot) {
+        return passed[slot];
+    }
+
+    /** Penalty for the shield in front of a king of the given color on the given file. */
+    public int shieldPenalty(int slot, int color, int file) {
+        return (int) (shields[color][slot] >>> (8 * file)) & 0xFF;
+    }
+
+    public long probes() {
+        return probes;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, -1L);
+        probes = 0;
+        hits = 0;
+    }
+
+    private void score(Position pos, int slot) {
+        int mg = 0, eg = 0;
+        long passers = 0;
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            long own = pos.pieces(color, Position.PAWN);
+            long enemy = pos.pieces(color ^ 1, Position.PAWN);
+            int sign = color == Position.WHITE ? 1 : -1;
+            for (long pawns = own; pawns != 0; pawns &= pawns - 1) {
+                int sq = Long.numberOfTrailingZeros(pawns);
+                int file = sq & 7, row = sq >>> 3;
+                long fileMask = Bitboards.FILE_A << file;
+                long neighbours = (file > 0 ? Bitboards.FILE_A << (file - 1) : 0) | (file < 7 ? Bitboards.FILE_A << (file + 1) : 0);
+                // Squares on rows strictly in front of the pawn, towards its promotion.
+                long ahead = color == Position.WHITE ? (1L << (8 * row)) - 1 : -(1L << (8 * (row + 1)));
+
+                if ((own & fileMask & ahead) != 0) {
+                    mg -= sign * DOUBLED_MG;
+                    eg -= sign * DOUBLED_EG;
+                } else if ((enemy & (fileMask | neighbours) & ahead) == 0) {
+                    int rank = color == Position.WHITE ? 7 - row : row;
+                    mg += sign * PASSED_MG[rank];
+                    eg += sign * PASSED_EG[rank];
+                    passers |= Bitboards.bit(sq);
+                }
+                if ((own & neighbours) == 0) {
+                    mg -= sign * ISOLATED_MG;
+                    eg -= sign * ISOLATED_EG;
+                } else if ((own & neighbours & ~ahead) == 0) {
+                    // No neighbour level with it or behind it, and it cannot advance safely.
+                    int stop = color == Position.WHITE ? sq - 8 : sq + 8;
+                    if ((Bitboards.PAWN_ATTACKS[color][stop] & enemy) != 0) {
+                        mg -= sign * BACKWARD_MG;
+                        eg -= sign * BACKWARD_EG;
+                    }
+                }
+            }
+            shields[color][slot] = shields(own, color);
+        }
+        midgame[slot] = mg;
+        endgame[slot] = eg;
+        passed[slot] = passers;
+    }
+
+    private static long shields(long own, int color) {
+        int[] penalty = new int[8];
+        for (int file = 0; file < 8; file++) {
+            long fileMask = Bitboards.FILE_A << file;
+            long oneStep = fileMask & (color == Position.WHITE ? Bitboards.ROW_7 >>> 8 : Bitboards.ROW_0 << 8);
+            long twoSteps = fileMask & (color == Position.WHITE ? Bitboards.ROW_7 >>> 16 : Bitboards.ROW_0 << 16);
+            penalty[file] = (own & oneStep) != 0 ? 0 : (own & twoSteps) != 0 ? SHIELD_ADVANCED : SHIELD_MISSING;
+        }
+        long packed = 0;
+        for (int kingFile = 0; kingFile < 8; kingFile++) {
+            int total = 0;
+            for (int file = Math.max(0, kingFile - 1); file <= Math.min(7, kingFile + 1); file++) {
+                total += penalty[file];
+            }
+            packed |= (long) total << (8 * kingFile);
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,488 @@
+package com.chess.engine;
+
+import com.chess.logic.MoveGenerator;
+import com.chess.logic.MoveList;
+import com.chess.logic.PackedMove;
+import com.chess.logic.Position;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Iterative-deepening negamax alpha-beta search with principal variation search, a
+ * transposition table, with moves ordered by a staged {@link MovePicker} and a quiescence
+ * search of captures at the leaves. A Search instance is reusable between moves but runs one
+ * search at a time.
+ * <p>
+ * With more than one thread the search is a Lazy SMP search: helper threads search private
+ * copies of the root at the same or the next depth and share only the transposition table and
+ * the node budget. Their results reach the main thread through the table; the move played is
+ * always the main thread's.
+ * <p>
+ * A ponder search runs on the position after the opponent's expected reply and ignores its
+ * time and node limits until {@link #ponderHit} gives it a real budget, so the work done while
+ * the opponent thinks is kept when they play the expected move.
+ * <p>
+ * With {@link Tablebases} set, positions they cover are scored exactly wherever the search
+ * reaches them, so won endgames are played by the shortest mate instead of searched.
+ */
+public final class Search implements AutoCloseable {
+    public static final int MAX_PLY = 128;
+    public static final int INFINITY = 32_000;
+    public static final int MATE = 31_000;
+    /**
+     * Scores beyond this bound are mate scores. It leaves room for a tablebase mate, up to 126
+     * plies long, found at any ply of the search.
+     */
+    public static final int MATE_BOUND = MATE - 2 * MAX_PLY;
+
+    /** System property holding the number of search threads; defaults to the available processors. */
+    public static final String THREADS_PROPERTY = "chess.search.threads";
+
+    private static final int CHECK_INTERVAL = 2048;
+    // A capture that cannot lift the score to within this of alpha is not searched in quiescence.
+    private static final int DELTA_MARGIN = 200;
+
+    private final TranspositionTable table;
+    private final Search[] helpers;
+    private ExecutorService helperPool;
+    private final PawnTable pawns = new PawnTable(PawnTable.DEFAULT_BITS);
+    private final MoveHistory history = new MoveHistory();
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY + 1];
+    private final int[][] triedQuiets = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    private Position pos;
+    private long nodes;
+    private long reportedNodes;
+    private AtomicLong sharedNodes;
+    private volatile SearchLimits budget;
+    private volatile long budgetStart;
+    private volatile long nodeLimit;
+    private volatile long deadline;
+    private volatile boolean stopped;
+    private volatile boolean pondering;
+    private SearchLimits pendingPonderHit;
+    private volatile Tablebases tablebases;
+    private volatile Consumer<SearchResult> progress;
+
+    public Search(TranspositionTable table) {
+        this(table, 1);
+    }
+
+    public Search(TranspositionTable table, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("A search needs at least one thread");
+        this.table = table;
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            pickers[ply] = new MovePicker(history);
+        }
+        this.helpers = new Search[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Search(table);
+        }
+    }
+
+    /** Thread count from the {@value #THREADS_PROPERTY} system property. */
+    public static int configuredThreads() {
+        return Math.max(1, Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int threads() {
+        return helpers.length + 1;
+    }
+
+    /** The main thread's pawn hash; helpers keep their own. */
+    public PawnTable pawnTable() {
+        return pawns;
+    }
+
+    /** The endgame tables to score positions from, or null for none. */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+        for (Search helper : helpers) {
+            helper.setTablebases(tablebases);
+        }
+    }
+
+    /**
+     * Called on the searching thread with the result of every iteration the main thread
+     * completes, or null for none. Nodes count those of all threads so far.
+     */
+    public void setProgressListener(Consumer<SearchResult> listener) {
+        this.progress = listener;
+    }
+
+    /**
+     * Asks a running search to return as soon as possible with the best move found so far.
+     * Interrupting the searching thread has the same effect.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    /**
+     * Turns the running ponder search into a normal one, with the limits counted from now.
+     * A hit that arrives before the ponder search has started is applied when it starts.
+     */
+    public synchronized void ponderHit(SearchLimits limits) {
+        if (pondering) {
+            long now = System.currentTimeMillis();
+            // Time spent pondering counts as thinking time: if it already covers the soft
+            // limit, play the deepest completed iteration now.
+            if (now - budgetStart >= limits.softTimeMillis()) stopped = true;
+            applyBudget(limits, now, sharedNodes.get());
+            pondering = false;
+            notifyAll();
+        } else {
+            pendingPonderHit = limits;
+        }
+    }
+
+    /** Forgets a ponder hit that was sent for a ponder search that never started. */
+    public synchronized void discardPonderHit() {
+        pendingPonderHit = null;
+    }
+
+    /** Shuts down the helper threads. */
+    @Override
+    public void close() {
+        if (helperPool != null) helperPool.shutdownNow();
+    }
+
+    public SearchResult search(Position root, SearchLimits limits) {
+        return search(root, limits, false);
+    }
+
+    /** Searches the position, or ponders on it until {@link #ponderHit} or {@link #stop}. */
+    public SearchResult search(Position root, SearchLimits limits, boolean ponder) {
+        long start = System.currentTimeMillis();
+        AtomicLong totalNodes = new AtomicLong();
+        synchronized (this) {
+            prepare(root, limits, start, totalNodes);
+            if (ponder && pendingPonderHit != null) {
+                applyBudget(pendingPonderHit, start, 0);
+            } else {
+                pondering = ponder;
+            }
+            pendingPonderHit = null;
+        }
+        table.newSearch();
+
+        MoveList rootMoves = new MoveList();
+        MoveGenerator.generateLegal(root, rootMoves);
+        if (rootMoves.isEmpty()) {
+            pondering = false;
+            return new SearchResult(PackedMove.NONE, root.isInCheck(root.sideToMove()) ? -MATE : 0, 0, 0, 0, new int[0]);
+        }
+
+        int bestMove = rootMoves.get(0);
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] bestLine = {bestMove};
+        double instability = 0;
+        int maxDepth = Math.min(limits.maxDepth(), MAX_PLY);
+        List<Future<?>> running = startHelpers(root, start, totalNodes, maxDepth);
+        try {
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                int score = negamax(depth, 0, -INFINITY, INFINITY);
+                if (stopped) {
+                    // A cut-short iteration has no score to report; the first one may still
+                    // have found a better move than the fallback among the moves it finished.
+                    if (completedDepth == 0 && pvLength[0] > 0) {
+                        bestLine = Arrays.copyOf(pv[0], pvLength[0]);
+                        bestMove = bestLine[0];
+                    }
+                    break;
+                }
+
+                int previousBest = bestMove;
+                bestScore = score;
+                bestLine = Arrays.copyOf(pv[0], pvLength[0]);
+                if (bestLine.length > 0) bestMove = bestLine[0];
+                completedDepth = depth;
+                Consumer<SearchResult> listener = progress;
+                if (listener != null) {
+                    listener.accept(new SearchResult(bestMove, bestScore, depth, reportNodes(),
+                            System.currentTimeMillis() - start, bestLine));
+                }
+
+                // A new best move buys extra time past the soft limit, up to three times it;
+                // the credit halves with every iteration that keeps the same move. An iteration
+                // started after half the hard limit would most likely be cut off, so none is.
+                if (depth > 1 && bestMove != previousBest) instability += 1;
+                if (stopped || Math.abs(score) >= MATE_BOUND) break;
+                if (!pondering) {
+                    SearchLimits current = budget;
+                    long elapsed = System.currentTimeMillis() - budgetStart;
+                    if (elapsed > current.maxTimeMillis() / 2
+                            || elapsed > current.softTimeMillis() * (1 + Math.min(2, instability))) {
+                        break;
+                    }
+                }
+                instability /= 2;
+            }
+            awaitPonderEnd();
+        } finally {
+            pondering = false;
+            stopHelpers(running);
+            reportNodes();
+        }
+        return new SearchResult(bestMove, bestScore, completedDepth, totalNodes.get(),
+                System.currentTimeMillis() - start, bestLine);
+    }
+
+    private void prepare(Position root, SearchLimits limits, long start, AtomicLong totalNodes) {
+        pos = root;
+        nodes = 0;
+        reportedNodes = 0;
+        sharedNodes = totalNodes;
+        applyBudget(limits, start, 0);
+        history.newSearch();
+        stopped = false;
+    }
+
+    private void applyBudget(SearchLimits limits, long start, long nodesSpent) {
+        budget = limits;
+        budgetStart = start;
+        nodeLimit = limits.maxNodes() > Long.MAX_VALUE - nodesSpent ? Long.MAX_VALUE : nodesSpent + limits.maxNodes();
+        deadline = limits.maxTimeMillis() > Long.MAX_VALUE - start ? Long.MAX_VALUE : start + limits.maxTimeMillis();
+    }
+
+    // A ponder search that has run out of depth waits here for the opponent's move.
+    private synchronized void awaitPonderEnd() {
+        while (pondering && !stopped) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Helpers are reset here, before they are handed to the pool, so a stop() sent while one is
+    // still queued is not lost. They have no limits of their own and run until the main thread
+    // stops them. Every second helper starts one ply deeper to spread the work.
+    private List<Future<?>> startHelpers(Position root, long start, AtomicLong totalNodes, int maxDepth) {
+        List<Future<?>> running = new ArrayList<>(helpers.length);
+        if (helpers.length == 0) return running;
+        if (helperPool == null) {
+            helperPool = Executors.newFixedThreadPool(helpers.length, runnable -> {
+                Thread thread = new Thread(runnable, "chess-search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = helpers[i];
+            int firstDepth = 1 + (i & 1);
+            helper.prepare(root.copy(), SearchLimits.depth(maxDepth), start, totalNodes);
+            running.add(helperPool.submit(() -> helper.iterate(firstDepth, maxDepth)));
+        }
+        return running;
+    }
+
+    private void iterate(int firstDepth, int maxDepth) {
+        try {
+            for (int depth = firstDepth; depth <= maxDepth && !stopped; depth++) {
+                negamax(depth, 0, -INFINITY, INFINITY);
+            }
+        } finally {
+            reportNodes();
+        }
+    }
+
+    // Waits for every helper, even if this thread is interrupted meanwhile, so none is still
+    // using its position or move lists when the next search starts.
+    private void stopHelpers(List<Future<?>> running) {
+        for (Search helper : helpers) {
+            helper.stop();
+        }
+        boolean interrupted = false;
+        for (Future<?> future : running) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Helper search failed", e.getCause());
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (++nodes % CHECK_INTERVAL == 0) checkLimits();
+        if (stopped) return 0;
+        if (ply > 0 && (pos.halfmoveClock() >= 100 || pos.isRepetition())) return 0;
+        Tablebases endgames = tablebases;
+        if (ply > 0 && endgames != null && Long.bitCount(pos.occupied()) <= Tablebases.MAX_PIECES) {
+            int entry = endgames.probe(pos);
+            if (entry >= 0) return tablebaseScore(entry, ply);
+        }
+
+        boolean inCheck = pos.isInCheck(pos.sideToMove());
+        if (inCheck) depth++;
+        if (ply >= MAX_PLY) return Evaluator.evaluate(pos, pawns);
+        if (depth <= 0) return quiesce(ply, alpha, beta);
+
+        long key = pos.key();
+        long entry = table.probe(key);
+        int hashMove = PackedMove.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MovePicker picker = pickers[ply];
+        picker.reset(pos, hashMove, ply);
+        int[] quiets = triedQuiets[ply];
+        int quietCount = 0;
+        int moveCount = 0;
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            boolean quiet = !MoveGenerator.isCapture(pos, move);
+            pos.make(move);
+            int score;
+            if (moveCount++ == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                // Later moves are expected to fail low; prove it with a null window first.
+                score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            pos.unmake();
+            if (stopped) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (quiet) history.cutoff(pos, move, ply, depth, quiets, quietCount);
+                        break;
+                    }
+                }
+            }
+            if (quiet) quiets[quietCount++] = move;
+        }
+        if (moveCount == 0) return inCheck ? -MATE + ply : 0;
+
+        int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    // Captures only, from the static evaluation up, so the score a leaf returns does not hinge on
+    // a piece left hanging at the horizon. In check every evasion is searched instead.
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (++nodes % CHECK_INTERVAL == 0) checkLimits();
+        if (stopped) return 0;
+        if (ply >= MAX_PLY) return Evaluator.evaluate(pos, pawns);
+
+        boolean inCheck = pos.isInCheck(pos.sideToMove());
+        int standPat = -INFINITY;
+        int bestScore = -INFINITY;
+        MovePicker picker = pickers[ply];
+        if (inCheck) {
+            picker.reset(pos, PackedMove.NONE, ply);
+        } else {
+            standPat = Evaluator.evaluate(pos, pawns);
+            if (standPat >= beta) return standPat;
+            if (standPat > alpha) alpha = standPat;
+            bestScore = standPat;
+            picker.resetQuiescence(pos);
+        }
+
+        int moveCount = 0;
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            moveCount++;
+            if (!inCheck && standPat + StaticExchange.captureGain(pos, move) + DELTA_MARGIN <= alpha) continue;
+            pos.make(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            pos.unmake();
+            if (stopped) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) break;
+                }
+            }
+        }
+        if (inCheck && moveCount == 0) return -MATE + ply;
+        return bestScore;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    // The node budget is shared by all threads, so each one adds its count to the total here.
+    // An interrupt is how SearchService cancels a search running on its worker thread.
+    private void checkLimits() {
+        long total = reportNodes();
+        if (Thread.currentThread().isInterrupted()
+                || (!pondering && (total >= nodeLimit || System.currentTimeMillis() >= deadline))) {
+            stopped = true;
+        }
+    }
+
+    private long reportNodes() {
+        long total = sharedNodes.addAndGet(nodes - reportedNodes);
+        reportedNodes = nodes;
+        return total;
+    }
+
+    private static int tablebaseScore(int entry, int ply) {
+        return switch (Tablebases.result(entry)) {
+            case Tablebases.WIN -> MATE - ply - Tablebases.matePlies(entry);
+            case Tablebases.LOSS -> -MATE + ply + Tablebases.matePlies(entry);
+            default -> 0;
+        };
+    }
+
+    // Mate scores are stored relative to the node so they stay valid at other plies.
+    private static int toTable(int score, int ply) {
+        if (score >= MATE_BOUND) return score + ply;
+        if (score <= -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE_BOUND) return score - ply;
+        if (score <= -MATE_BOUND) return score + ply;
+        return score;
+    }
+}
@@ -0,0 +1,75 @@
+package com.chess.engine;
+
+import com.chess.logic.Position;
+
+/**
+ * Measures how the search scales with threads: every position is searched to a fixed depth
+ * with each thread count, starting from an empty table. The fastest of several rounds is kept,
+ * and its total time to depth and nodes per second are printed next to the speedup over the
+ * first thread count and the main thread's pawn hash hit rate.
+ */
+public final class SearchBench {
+    private static final String[] POSITIONS = {
+            Position.START_FEN,
+            "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r2q1rk1/pp2bppp/2n1pn2/3p4/3P4/2NBPN2/PP3PPP/R2Q1RK1 w - - 0 10",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "6k1/5ppp/8/8/8/2r5/5PPP/3R2K1 w - - 0 1",
+    };
+
+    private SearchBench() {
+    }
+
+    /** Usage: {@code SearchBench [-depth d] [-threads 1,2,4] [-rounds n] [-hash mb]}. */
+    public static void main(String[] args) {
+        int depth = 7;
+        String threadList = "1," + Runtime.getRuntime().availableProcessors();
+        int rounds = 3;
+        int hashMegabytes = TranspositionTable.DEFAULT_MEGABYTES;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-depth" -> depth = Integer.parseInt(args[++i]);
+                case "-threads" -> threadList = args[++i];
+                case "-rounds" -> rounds = Integer.parseInt(args[++i]);
+                case "-hash" -> hashMegabytes = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        TranspositionTable table = new TranspositionTable(hashMegabytes);
+        // One untimed pass so the first thread count is not measured while the JIT warms up.
+        try (Search search = new Search(table)) {
+            for (String fen : POSITIONS) {
+                search.search(Position.fromFen(fen), SearchLimits.depth(depth));
+            }
+        }
+        long baseline = 0;
+        System.out.printf("%8s %12s %10s %12s %8s %10s%n", "threads", "nodes", "ms", "nps", "speedup", "pawn hits");
+        for (String entry : threadList.split(",")) {
+            int threads = Integer.parseInt(entry.trim());
+            long nodes = 0, millis = Long.MAX_VALUE;
+            double pawnHits;
+            try (Search search = new Search(table, threads)) {
+                for (int round = 0; round < rounds; round++) {
+                    long roundNodes = 0, roundMillis = 0;
+                    for (String fen : POSITIONS) {
+                        table.clear();
+                        SearchResult result = search.search(Position.fromFen(fen), SearchLimits.depth(depth));
+                        roundNodes += result.nodes();
+                        roundMillis += result.timeMillis();
+                    }
+                    if (roundMillis < millis) {
+                        nodes = roundNodes;
+                        millis = Math.max(1, roundMillis);
+                    }
+                }
+                PawnTable pawns = search.pawnTable();
+                pawnHits = 100.0 * pawns.hits() / Math.max(1, pawns.probes());
+            }
+            if (baseline == 0) baseline = millis;
+            System.out.printf("%8d %12d %10d %12d %8.2f %9.1f%%%n", threads, nodes, millis, nodes * 1000 / millis,
+                    (double) baseline / millis, pawnHits);
+        }
+    }
+}
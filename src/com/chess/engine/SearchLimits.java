@@ -0,0 +1,31 @@
+package com.chess.engine;
+
+/**
+ * Budget for one search. A search stops at whichever limit it reaches first. After the soft
+ * time no new iteration is started, unless the best move has just changed; the hard time
+ * aborts the search wherever it is.
+ */
+public record SearchLimits(int maxDepth, long maxNodes, long softTimeMillis, long maxTimeMillis) {
+    public static final SearchLimits EASY = new SearchLimits(3, 20_000, 150, 300);
+    public static final SearchLimits MEDIUM = new SearchLimits(6, 500_000, 500, 1_000);
+    public static final SearchLimits HARD = new SearchLimits(Search.MAX_PLY, 5_000_000, 1_500, 3_000);
+
+    /** Searches to a fixed depth however long it takes. */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /** Limits for an AI level as chosen in the setup screen: "Easy", "Medium" or "Hard". */
+    public static SearchLimits forLevel(String level) {
+        return switch (level) {
+            case "Easy" -> EASY;
+            case "Hard" -> HARD;
+            default -> MEDIUM;
+        };
+    }
+
+    /** These limits with the time budgets lowered to at most the given ones. */
+    public SearchLimits withTime(long softMillis, long hardMillis) {
+        return new SearchLimits(maxDepth, maxNodes, Math.min(softTimeMillis, softMillis), Math.min(maxTimeMillis, hardMillis));
+    }
+}
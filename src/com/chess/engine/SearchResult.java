@@ -0,0 +1,8 @@
+package com.chess.engine;
+
+/**
+ * Outcome of a search: the best move as a {@link com.chess.logic.PackedMove} (0 if the side to
+ * move has no legal move), its score in centipawns, the last completed depth and the principal variation.
+ */
+public record SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] principalVariation) {
+}
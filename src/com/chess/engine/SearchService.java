@@ -0,0 +1,186 @@
+package com.chess.engine;
+
+import com.chess.logic.MoveGenerator;
+import com.chess.logic.MoveList;
+import com.chess.logic.PackedMove;
+import com.chess.logic.Position;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * Runs searches on a dedicated background thread so the calling thread, usually the Swing
+ * event dispatch thread, never waits on the engine. Each result is handed back with a single
+ * task on the callback executor. A search is cancelled by interrupting it; a search that was
+ * cancelled or replaced before its callback runs never delivers its result. A search that
+ * fails is logged and answered with any legal move, so the caller is never left waiting.
+ * <p>
+ * While the opponent thinks, the service can ponder on the position after their expected
+ * reply. If they play it, {@link #ponderHit} lets that search finish with a real budget and
+ * deliver its result to the callback given to {@link #ponder}; otherwise the ponder search is
+ * cancelled like any other.
+ * <p>
+ * With an opening book set, positions found in it are answered from the book without searching.
+ */
+public final class SearchService implements AutoCloseable {
+    /** System property that turns pondering off when set to {@code false}. */
+    public static final String PONDER_PROPERTY = "chess.ponder";
+    private static final System.Logger LOG = System.getLogger(SearchService.class.getName());
+
+    private final Search search;
+    private final Executor callbackExecutor;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chess-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Job current;
+    private volatile OpeningBook book;
+
+    public SearchService(TranspositionTable table, int threads, Executor callbackExecutor) {
+        this.search = new Search(table, threads);
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /** The endgame tables the search scores from, or null for none. */
+    public void setTablebases(Tablebases tablebases) {
+        search.setTablebases(tablebases);
+    }
+
+    /** The book to answer from before searching, or null for none. */
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public static boolean ponderingEnabled() {
+        return Boolean.parseBoolean(System.getProperty(PONDER_PROPERTY, "true"));
+    }
+
+    /** Starts searching a private copy of the position, cancelling any search still running. */
+    public synchronized void start(Position root, SearchLimits limits, Consumer<SearchResult> onResult) {
+        start(root, limits, false, onResult);
+    }
+
+    /** Starts pondering on a private copy of the position, which has the opponent's expected reply played. */
+    public synchronized void ponder(Position root, SearchLimits limits, Consumer<SearchResult> onResult) {
+        start(root, limits, true, onResult);
+    }
+
+    /**
+     * Tells the ponder search that the expected reply was played and gives it the limits for
+     * the move. Returns false, and does nothing, when no ponder search is running.
+     */
+    public synchronized boolean ponderHit(SearchLimits limits) {
+        if (current == null || !current.pondering) return false;
+        current.pondering = false;
+        // Until the job has started, the search may still be a cancelled one winding down.
+        if (current.started) {
+            search.ponderHit(limits);
+        } else {
+            current.limits = limits;
+        }
+        return true;
+    }
+
+    public synchronized void cancel() {
+        if (current != null) {
+            current.task.cancel(true);
+            current = null;
+            search.discardPonderHit();
+        }
+    }
+
+    public synchronized boolean isSearching() {
+        return current != null;
+    }
+
+    public synchronized boolean isPondering() {
+        return current != null && current.pondering;
+    }
+
+    private void start(Position root, SearchLimits limits, boolean ponder, Consumer<SearchResult> onResult) {
+        cancel();
+        current = new Job(root.copy(), limits, ponder, onResult);
+        worker.execute(current.task);
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        worker.shutdownNow();
+        search.close();
+    }
+
+    private synchronized boolean finish(Job job) {
+        if (current != job) return false;
+        current = null;
+        return true;
+    }
+
+    private final class Job {
+        private final FutureTask<SearchResult> task;
+        private final Consumer<SearchResult> onResult;
+        // Untouched by the search, which may leave its own copy mid-line if it fails.
+        private final Position fallbackRoot;
+        // Guarded by the service; a job's limits and mode are fixed once it has started.
+        private SearchLimits limits;
+        private boolean pondering;
+        private boolean started;
+
+        Job(Position root, SearchLimits limits, boolean ponder, Consumer<SearchResult> onResult) {
+            this.onResult = onResult;
+            this.fallbackRoot = root.copy();
+            this.limits = limits;
+            this.pondering = ponder;
+            this.task = new FutureTask<>(() -> run(root)) {
+                @Override
+                protected void done() {
+                    deliver();
+                }
+            };
+        }
+
+        private SearchResult run(Position root) {
+            SearchLimits startLimits;
+            boolean ponder;
+            synchronized (SearchService.this) {
+                started = true;
+                startLimits = limits;
+                ponder = pondering;
+            }
+            OpeningBook openingBook = book;
+            if (!ponder && openingBook != null) {
+                int move = openingBook.pick(root);
+                if (move != PackedMove.NONE) return new SearchResult(move, 0, 0, 0, 0, new int[]{move});
+            }
+            return search.search(root, startLimits, ponder);
+        }
+
+        private void deliver() {
+            if (task.isCancelled()) return;
+            SearchResult result;
+            try {
+                result = task.get();
+            } catch (InterruptedException | ExecutionException e) {
+                // Throwing here would only reach the worker thread; the caller would wait forever.
+                LOG.log(System.Logger.Level.ERROR, "Search failed", e.getCause() != null ? e.getCause() : e);
+                result = anyLegalMove(fallbackRoot);
+            }
+            // Checked again on the callback thread, where a cancel may have happened meanwhile.
+            SearchResult delivered = result;
+            callbackExecutor.execute(() -> {
+                if (finish(this)) onResult.accept(delivered);
+            });
+        }
+
+        private static SearchResult anyLegalMove(Position pos) {
+            MoveList legal = new MoveList();
+            MoveGenerator.generateLegal(pos, legal);
+            if (legal.isEmpty()) return new SearchResult(PackedMove.NONE, 0, 0, 0, 0, new int[0]);
+            return new SearchResult(legal.get(0), 0, 0, 0, 0, new int[]{legal.get(0)});
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.chess.engine;
+
+import com.chess.logic.Bitboards;
+import com.chess.logic.PackedMove;
+import com.chess.logic.PieceSquareTables;
+import com.chess.logic.Position;
+
+/**
+ * Static exchange evaluation: the material outcome of the captures a move starts on its target
+ * square, found without making any move. Both sides recapture with their least valuable
+ * attacker and either may stop when going on would lose. Pins are not taken into account.
+ */
+public final class StaticExchange {
+    private static final int[] VALUES = PieceSquareTables.PIECE_VALUES;
+    // Attackers are tried in order of value.
+    private static final int[] CHEAPEST_FIRST = {
+            Position.PAWN, Position.KNIGHT, Position.BISHOP, Position.ROOK, Position.QUEEN, Position.KING};
+
+    private StaticExchange() {
+    }
+
+    /** Material a capture or promotion wins outright, before any recapture. */
+    public static int captureGain(Position pos, int move) {
+        int victim = pos.pieceAt(PackedMove.to(move));
+        int gain = PackedMove.flag(move) == PackedMove.EN_PASSANT ? VALUES[Position.PAWN]
+                : victim == Position.EMPTY ? 0 : VALUES[Position.typeOf(victim)];
+        int promotion = PackedMove.promotionType(move);
+        if (promotion != 0) gain += VALUES[promotion] - VALUES[Position.PAWN];
+        return gain;
+    }
+
+    /**
+     * Whether the exchange gains at least the threshold for the side making the move.
+     * Promotions and castling are always assumed to reach a threshold of 0.
+     */
+    public static boolean atLeast(Position pos, int move, int threshold) {
+        int flag = PackedMove.flag(move);
+        if (flag == PackedMove.CASTLE || PackedMove.promotionType(move) != 0) return threshold <= 0;
+
+        int from = PackedMove.from(move), to = PackedMove.to(move);
+        int captured = flag == PackedMove.EN_PASSANT ? VALUES[Position.PAWN]
+                : pos.pieceAt(to) == Position.EMPTY ? 0 : VALUES[Position.typeOf(pos.pieceAt(to))];
+        // swap is what the side to move in the exchange must win back to be above the threshold.
+        int swap = captured - threshold;
+        if (swap < 0) return false;
+        swap = VALUES[Position.typeOf(pos.pieceAt(from))] - swap;
+        if (swap <= 0) return true;
+
+        long occupied = pos.occupied() ^ Bitboards.bit(from) ^ Bitboards.bit(to);
+        if (flag == PackedMove.EN_PASSANT) occupied ^= Bitboards.bit(to + (pos.sideToMove() == Position.WHITE ? 8 : -8));
+        long queens = pos.pieces(Position.WHITE, Position.QUEEN) | pos.pieces(Position.BLACK, Position.QUEEN);
+        long diagonal = queens | pos.pieces(Position.WHITE, Position.BISHOP) | pos.pieces(Position.BLACK, Position.BISHOP);
+        long straight = queens | pos.pieces(Position.WHITE, Position.ROOK) | pos.pieces(Position.BLACK, Position.ROOK);
+        long attackers = pos.attackersTo(to, occupied);
+
+        int side = pos.sideToMove();
+        boolean wins = true;
+        while (true) {
+            side ^= 1;
+            attackers &= occupied;
+            long own = attackers & pos.occupancy(side);
+            if (own == 0) break;
+            wins = !wins;
+
+            int type = Position.KING;
+            for (int candidate : CHEAPEST_FIRST) {
+                if ((own & pos.pieces(side, candidate)) != 0) {
+                    type = candidate;
+                    break;
+                }
+            }
+            if (type == Position.KING) {
+                // The king can only recapture if nothing can take it back.
+                return (attackers & ~pos.occupancy(side)) != 0 ? !wins : wins;
+            }
+            swap = VALUES[type] - swap;
+            if (swap < (wins ? 1 : 0)) break;
+
+            long piece = own & pos.pieces(side, type);
+            occupied ^= piece & -piece;
+            // Removing the piece may uncover a slider behind it.
+            if (type == Position.PAWN || type == Position.BISHOP || type == Position.QUEEN) {
+                attackers |= Bitboards.bishopAttacks(to, occupied) & diagonal;
+            }
+            if (type == Position.ROOK || type == Position.QUEEN) {
+                attackers |= Bitboards.rookAttacks(to, occupied) & straight;
+            }
+        }
+        return wins;
+    }
+}
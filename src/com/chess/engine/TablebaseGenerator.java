@@ -0,0 +1,284 @@
+package com.chess.engine;
+
+import com.chess.logic.Bitboards;
+import com.chess.logic.Position;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Retrograde analysis for a king and one or two pieces against a bare king, with the strong
+ * side as White. Only the strong side can win these endings, so every position with the strong
+ * side to move is a win or a draw and every other one a loss or a draw.
+ * <p>
+ * Positions are solved in order of distance to mate: mates first, then every position one
+ * strong move before a loss is a win, and a weak-side position becomes a loss once each of its
+ * king moves is known to lead to a win. The weak side's untried moves are counted per position
+ * so that each win discovered only needs to walk the moves back to its predecessors.
+ */
+final class TablebaseGenerator {
+    // Weak-side positions with a move that escapes the table, i.e. a capture, are never lost.
+    private static final byte CANNOT_LOSE = Byte.MAX_VALUE;
+
+    private final int[] types;
+    private final int[] squares;
+    private final int shift;
+    private final int size;
+    private final byte[] values;
+    private final byte[] counters;
+    private final Tablebases.Table queenTable;
+    private final Tablebases.Table rookTable;
+
+    /** The promotion tables are only needed for pawn endings and may otherwise be null. */
+    TablebaseGenerator(int[] types, Tablebases.Table queenTable, Tablebases.Table rookTable) {
+        this.types = types.clone();
+        this.squares = new int[types.length];
+        this.shift = 6 * types.length;
+        this.size = Tablebases.size(types.length);
+        this.values = new byte[size];
+        this.counters = new byte[size / 2];
+        this.queenTable = queenTable;
+        this.rookTable = rookTable;
+    }
+
+    /** One {@link Tablebases} entry per index. */
+    byte[] generate() {
+        IntList current = new IntList();
+        List<IntList> promotions = new ArrayList<>();
+        initialize(current, promotions);
+        for (int ply = 0; !current.isEmpty() || ply + 1 < promotions.size(); ply++) {
+            IntList next = new IntList();
+            for (int i = 0; i < current.size(); i++) {
+                unmove(current.get(i), ply + 1, next);
+            }
+            // Wins by promotion join the search at the distance the promoted table gives them.
+            if (ply + 1 < promotions.size()) {
+                IntList seeds = promotions.get(ply + 1);
+                for (int i = 0; i < seeds.size(); i++) {
+                    int index = seeds.get(i);
+                    if (values[index] == 0) {
+                        values[index] = entry(Tablebases.WIN, ply + 1);
+                        next.add(index);
+                    }
+                }
+            }
+            current = next;
+        }
+        return values;
+    }
+
+    private void initialize(IntList mates, List<IntList> promotions) {
+        int half = size / 2;
+        for (int index = 0; index < size; index++) {
+            int weakToMove = index >>> (12 + shift);
+            int strongKing = (index >>> (6 + shift)) & 63;
+            int weakKing = (index >>> shift) & 63;
+            decodePieces(index);
+            if (!isLegal(weakToMove, strongKing, weakKing)) {
+                values[index] = (byte) (Tablebases.ILLEGAL << 6);
+                continue;
+            }
+
+            long occupied = occupied(strongKing) & ~Bitboards.bit(weakKing);
+            if (weakToMove == 1) {
+                int moves = 0;
+                boolean escapes = false;
+                long targets = Bitboards.KING_ATTACKS[weakKing] & ~Bitboards.KING_ATTACKS[strongKing];
+                while (targets != 0) {
+                    int target = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    int captured = pieceOn(target);
+                    if (captured >= 0) {
+                        if (!isAttacked(target, strongKing, occupied, captured)) escapes = true;
+                    } else if (!isAttacked(target, strongKing, occupied, -1)) {
+                        moves++;
+                    }
+                }
+                counters[index - half] = escapes ? CANNOT_LOSE : (byte) moves;
+                if (!escapes && moves == 0 && isAttacked(weakKing, strongKing, occupied, -1)) {
+                    values[index] = entry(Tablebases.LOSS, 0);
+                    mates.add(index);
+                }
+            } else {
+                int ply = promotionPly(strongKing, weakKing, occupied);
+                if (ply > 0) {
+                    while (promotions.size() <= ply) promotions.add(new IntList());
+                    promotions.get(ply).add(index);
+                }
+            }
+        }
+    }
+
+    // Distance to mate through the best winning promotion, or 0 when there is none. Minor
+    // pieces never win alone, so only queen and rook promotions are looked up.
+    private int promotionPly(int strongKing, int weakKing, long occupied) {
+        int best = 0;
+        for (int j = 0; j < types.length; j++) {
+            int to = squares[j] - 8;
+            if (types[j] != Position.PAWN || to >= 8 || (occupied & Bitboards.bit(to)) != 0 || to == weakKing) continue;
+            int child = ((1 << 6 | strongKing) << 6 | weakKing) << 6 | to;
+            for (Tablebases.Table table : new Tablebases.Table[]{queenTable, rookTable}) {
+                int value = table.value(child);
+                if (value >>> 6 != Tablebases.LOSS) continue;
+                int ply = 2 * (value & 63) + 1;
+                if (best == 0 || ply < best) best = ply;
+            }
+        }
+        return best;
+    }
+
+    // Walks back from a newly solved position to the positions one move before it.
+    private void unmove(int index, int ply, IntList next) {
+        int weakToMove = index >>> (12 + shift);
+        int strongKing = (index >>> (6 + shift)) & 63;
+        int weakKing = (index >>> shift) & 63;
+        decodePieces(index);
+        long empty = ~(occupied(strongKing) | Bitboards.bit(weakKing));
+
+        if (weakToMove == 1) {
+            // A loss: every strong move into it wins.
+            long origins = Bitboards.KING_ATTACKS[strongKing] & empty;
+            while (origins != 0) {
+                int origin = Long.numberOfTrailingZeros(origins);
+                origins &= origins - 1;
+                markWin(index(0, origin, weakKing), ply, next);
+            }
+            long occupied = ~empty;
+            for (int j = 0; j < types.length; j++) {
+                int square = squares[j];
+                origins = switch (types[j]) {
+                    case Position.PAWN -> pawnOrigins(square, empty);
+                    case Position.KNIGHT -> Bitboards.KNIGHT_ATTACKS[square];
+                    case Position.BISHOP -> Bitboards.bishopAttacks(square, occupied);
+                    case Position.ROOK -> Bitboards.rookAttacks(square, occupied);
+                    default -> Bitboards.queenAttacks(square, occupied);
+                } & empty;
+                while (origins != 0) {
+                    squares[j] = Long.numberOfTrailingZeros(origins);
+                    origins &= origins - 1;
+                    markWin(index(0, strongKing, weakKing), ply, next);
+                }
+                squares[j] = square;
+            }
+        } else {
+            // A win: one more of the weak side's moves is known to lose.
+            int half = size / 2;
+            long origins = Bitboards.KING_ATTACKS[weakKing] & empty;
+            while (origins != 0) {
+                int previous = index(1, strongKing, Long.numberOfTrailingZeros(origins));
+                origins &= origins - 1;
+                if (values[previous] != 0 || counters[previous - half] == CANNOT_LOSE) continue;
+                if (--counters[previous - half] == 0) {
+                    values[previous] = entry(Tablebases.LOSS, ply);
+                    next.add(previous);
+                }
+            }
+        }
+    }
+
+    private void markWin(int index, int ply, IntList next) {
+        // Zero is an undecided legal position; illegal ones are marked and never become wins.
+        if (values[index] == 0) {
+            values[index] = entry(Tablebases.WIN, ply);
+            next.add(index);
+        }
+    }
+
+    private static long pawnOrigins(int square, long empty) {
+        long origins = square + 8 < 56 ? Bitboards.bit(square + 8) : 0;
+        if (square >= 32 && square < 40 && (empty & Bitboards.bit(square + 8)) != 0) {
+            origins |= Bitboards.bit(square + 16);
+        }
+        return origins;
+    }
+
+    private boolean isLegal(int weakToMove, int strongKing, int weakKing) {
+        long seen = Bitboards.bit(strongKing) | Bitboards.bit(weakKing);
+        if (strongKing == weakKing || (Bitboards.KING_ATTACKS[strongKing] & Bitboards.bit(weakKing)) != 0) return false;
+        for (int j = 0; j < types.length; j++) {
+            long square = Bitboards.bit(squares[j]);
+            if ((seen & square) != 0) return false;
+            if (types[j] == Position.PAWN && (squares[j] < 8 || squares[j] >= 56)) return false;
+            seen |= square;
+        }
+        // The side that just moved cannot have left its king in check.
+        return weakToMove == 1 || !isAttacked(weakKing, strongKing, seen, -1);
+    }
+
+    // Whether a strong piece other than the excluded one, or the strong king, attacks the square.
+    private boolean isAttacked(int target, int strongKing, long occupied, int excluded) {
+        long bit = Bitboards.bit(target);
+        if ((Bitboards.KING_ATTACKS[strongKing] & bit) != 0) return true;
+        for (int j = 0; j < types.length; j++) {
+            if (j == excluded) continue;
+            int square = squares[j];
+            long attacks = switch (types[j]) {
+                case Position.PAWN -> Bitboards.PAWN_ATTACKS[Position.WHITE][square];
+                case Position.KNIGHT -> Bitboards.KNIGHT_ATTACKS[square];
+                case Position.BISHOP -> Bitboards.bishopAttacks(square, occupied);
+                case Position.ROOK -> Bitboards.rookAttacks(square, occupied);
+                default -> Bitboards.queenAttacks(square, occupied);
+            };
+            if ((attacks & bit) != 0) return true;
+        }
+        return false;
+    }
+
+    private long occupied(int strongKing) {
+        long occupied = Bitboards.bit(strongKing);
+        for (int square : squares) {
+            occupied |= Bitboards.bit(square);
+        }
+        return occupied;
+    }
+
+    private int pieceOn(int square) {
+        for (int j = 0; j < squares.length; j++) {
+            if (squares[j] == square) return j;
+        }
+        return -1;
+    }
+
+    private void decodePieces(int index) {
+        for (int j = squares.length - 1; j >= 0; j--) {
+            squares[j] = index & 63;
+            index >>>= 6;
+        }
+    }
+
+    private int index(int weakToMove, int strongKing, int weakKing) {
+        int index = (weakToMove << 6 | strongKing) << 6 | weakKing;
+        for (int square : squares) {
+            index = index << 6 | square;
+        }
+        return index;
+    }
+
+    private static byte entry(int result, int ply) {
+        int moves = (ply + 1) / 2;
+        if (moves > 63) throw new IllegalStateException("Mate too long to store: " + ply + " plies");
+        return (byte) (result << 6 | moves);
+    }
+
+    private static final class IntList {
+        private int[] items = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = value;
+        }
+
+        int get(int i) {
+            return items[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.chess.engine;
+
+import com.chess.logic.Position;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Perfect play for king and queen, rook, pawn, or bishop and knight against a bare king.
+ * The tables are generated once, offline, by {@link TablebaseGenerator} through {@link #load}
+ * or {@link #main}, saved to the {@value #DIR_PROPERTY} directory and memory-mapped from there;
+ * engines only ever map tables that already exist.
+ * <p>
+ * A table holds one byte per position: the result for the side to move in the top two bits
+ * and the distance to mate in moves in the other six. Positions are indexed with the side
+ * holding the pieces as White, so a position where Black has them is looked up mirrored.
+ * <p>
+ * File layout, big-endian: {@link #MAGIC}, a format version and the entry count, then the entries.
+ */
+public final class Tablebases {
+    public static final int MAGIC = 0x43544231; // "CTB1"
+    public static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    /** System property holding the directory the tables are cached in. */
+    public static final String DIR_PROPERTY = "chess.tablebases";
+    public static final String DEFAULT_DIR = "tablebases";
+    private static final System.Logger LOG = System.getLogger(Tablebases.class.getName());
+
+    /** Most men, kings included, in any table. */
+    public static final int MAX_PIECES = 4;
+
+    /** Results for the side to move. */
+    public static final int DRAW = 0, WIN = 1, LOSS = 2;
+    static final int ILLEGAL = 3;
+
+    // Queen and rook come first: pawn endings are solved through their promotions.
+    private static final String[] NAMES = {"KQK", "KRK", "KPK", "KBNK"};
+    private static final int[][] PIECES = {
+            {Position.QUEEN}, {Position.ROOK}, {Position.PAWN}, {Position.BISHOP, Position.KNIGHT}};
+
+    /** One mapped table. Indices are {@code weakToMove, strongKing, weakKing, pieces...}, six bits each. */
+    static final class Table {
+        private final int[] types;
+        private final MappedByteBuffer data;
+
+        Table(int[] types, MappedByteBuffer data) {
+            this.types = types;
+            this.data = data;
+        }
+
+        int value(int index) {
+            return data.get(HEADER_BYTES + index) & 0xFF;
+        }
+    }
+
+    private final List<Table> tables;
+
+    private Tablebases(List<Table> tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Maps the tables in the directory, first generating and saving any that are missing.
+     * Generation takes seconds, so this is for offline use; engines call {@link #open}.
+     */
+    public static Tablebases load(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        List<Table> tables = new ArrayList<>();
+        for (int i = 0; i < NAMES.length; i++) {
+            Path file = dir.resolve(NAMES[i] + ".tb");
+            Table table = open(file, PIECES[i]);
+            if (table == null) {
+                Table queen = tables.isEmpty() ? null : tables.get(0);
+                Table rook = tables.size() < 2 ? null : tables.get(1);
+                write(file, new TablebaseGenerator(PIECES[i], queen, rook).generate());
+                table = open(file, PIECES[i]);
+                if (table == null) throw new IOException("Could not read back " + file);
+            }
+            tables.add(table);
+        }
+        return new Tablebases(tables);
+    }
+
+    /** Maps the tables in the directory; fails, naming the table, if any is missing or damaged. */
+    public static Tablebases open(Path dir) throws IOException {
+        List<Table> tables = new ArrayList<>();
+        for (int i = 0; i < NAMES.length; i++) {
+            Path file = dir.resolve(NAMES[i] + ".tb");
+            if (!Files.isRegularFile(file)) throw new IOException("Missing table " + file);
+            Table table = open(file, PIECES[i]);
+            if (table == null) throw new IOException("Not a complete table: " + file);
+            tables.add(table);
+        }
+        return new Tablebases(tables);
+    }
+
+    public static Path configuredDir() {
+        return Path.of(System.getProperty(DIR_PROPERTY, DEFAULT_DIR));
+    }
+
+    /**
+     * The tables in the {@value #DIR_PROPERTY} directory, or null, with the reason logged, if
+     * they have not been generated there or cannot be read.
+     */
+    public static Tablebases configured() {
+        Path dir = configuredDir();
+        try {
+            return open(dir);
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Endgame tablebases not loaded: " + e.getMessage()
+                    + "; generate them with Tablebases " + dir);
+            return null;
+        }
+    }
+
+    static int size(int pieces) {
+        return 2 << (12 + 6 * pieces);
+    }
+
+    /** The entry for the position, or -1 when no table covers it. */
+    public int probe(Position pos) {
+        if (pos.castlingRights() != 0) return -1;
+        long whiteKing = pos.pieces(Position.WHITE, Position.KING);
+        long blackKing = pos.pieces(Position.BLACK, Position.KING);
+        long white = pos.occupancy(Position.WHITE) & ~whiteKing;
+        long black = pos.occupancy(Position.BLACK) & ~blackKing;
+        int strong;
+        if (black == 0 && white != 0) {
+            strong = Position.WHITE;
+        } else if (white == 0 && black != 0) {
+            strong = Position.BLACK;
+        } else {
+            return -1;
+        }
+        int pieces = Long.bitCount(white | black);
+
+        for (Table table : tables) {
+            if (table.types.length != pieces) continue;
+            // Black's pieces are looked up on the board flipped top to bottom.
+            int flip = strong == Position.WHITE ? 0 : 56;
+            int index = (pos.sideToMove() == strong ? 0 : 1) << 6 | (pos.kingSquare(strong) ^ flip);
+            index = index << 6 | (pos.kingSquare(strong ^ 1) ^ flip);
+            boolean matches = true;
+            for (int type : table.types) {
+                long piece = pos.pieces(strong, type);
+                if (Long.bitCount(piece) != 1) {
+                    matches = false;
+                    break;
+                }
+                index = index << 6 | (Long.numberOfTrailingZeros(piece) ^ flip);
+            }
+            if (matches) return table.value(index);
+        }
+        return -1;
+    }
+
+    /** {@link #WIN}, {@link #DRAW} or {@link #LOSS} for the side to move. */
+    public static int result(int entry) {
+        return entry >>> 6;
+    }
+
+    /** Plies until mate with best play, for an entry that is not a draw. */
+    public static int matePlies(int entry) {
+        int moves = entry & 63;
+        return result(entry) == WIN ? 2 * moves - 1 : 2 * moves;
+    }
+
+    // Null when the file is missing or not a complete table of the expected size.
+    private static Table open(Path file, int[] types) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long entries = size(types.length);
+            if (channel.size() != HEADER_BYTES + entries) return null;
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION || data.getLong(8) != entries) return null;
+            return new Table(types, data);
+        }
+    }
+
+    // Written next to the target first so a run that dies halfway leaves no broken table behind.
+    private static void write(Path file, byte[] values) throws IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(partial);
+             DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16))) {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(values.length);
+            data.write(values);
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Usage: {@code Tablebases [dir]}. Generates any missing tables and prints their longest mates. */
+    public static void main(String[] args) throws IOException {
+        Path dir = args.length > 0 ? Path.of(args[0]) : configuredDir();
+        long start = System.nanoTime();
+        Tablebases tablebases = load(dir);
+        System.out.println("Loaded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        for (int i = 0; i < NAMES.length; i++) {
+            Table table = tablebases.tables.get(i);
+            int size = size(table.types.length);
+            long wins = 0, draws = 0;
+            int longest = 0;
+            // Only positions with the strong side to move, the first half of each table.
+            for (int index = 0; index < size / 2; index++) {
+                int entry = table.value(index);
+                if (result(entry) == WIN) {
+                    wins++;
+                    longest = Math.max(longest, entry & 63);
+                } else if (result(entry) == DRAW) {
+                    draws++;
+                }
+            }
+            System.out.printf("%-5s wins %,12d  draws %,12d  longest mate %d moves%n", NAMES[i], wins, draws, longest);
+        }
+    }
+}
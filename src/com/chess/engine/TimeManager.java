@@ -0,0 +1,60 @@
+package com.chess.engine;
+
+/**
+ * Splits the time left on a player's clock into soft and hard deadlines for the next move.
+ * The soft deadline is an even share of the clock over the moves still expected; the hard
+ * deadline allows a few times that when the search is unstable, but never more than a fixed
+ * fraction of what is left. A reserve is always kept back for the time it takes to hand the
+ * move to the board, so a busy machine does not lose on time.
+ */
+public final class TimeManager {
+    /** Time kept back on every move for thread hand-off and repainting. */
+    public static final long MOVE_OVERHEAD_MILLIS = 150;
+
+    private static final int EXPECTED_GAME_MOVES = 50;
+    private static final int MIN_MOVES_TO_GO = 20;
+    private static final int HARD_TO_SOFT = 4;
+    // Never spend more than this part of the remaining clock on one move.
+    private static final int MAX_CLOCK_FRACTION = 5;
+
+    private TimeManager() {
+    }
+
+    /**
+     * Limits for one move with {@code remainingMillis} on the clock, as the given level's
+     * limits reduced to what the clock allows.
+     *
+     * @param gameType "Bullet", "Blitz" or "Rapid"; bullet games spend a little less per move
+     * @param moveNumber the full move number about to be played
+     */
+    public static SearchLimits allocate(SearchLimits level, long remainingMillis, String gameType, int moveNumber) {
+        long usable = Math.max(0, remainingMillis - MOVE_OVERHEAD_MILLIS);
+        int movesToGo = Math.max(MIN_MOVES_TO_GO, EXPECTED_GAME_MOVES - moveNumber);
+        long soft = usable / movesToGo;
+        if ("Bullet".equals(gameType)) {
+            soft = soft * 3 / 4;
+        } else if ("Rapid".equals(gameType)) {
+            soft = soft * 5 / 4;
+        }
+        long hard = Math.min(soft * HARD_TO_SOFT, usable / MAX_CLOCK_FRACTION);
+        soft = Math.min(soft, hard);
+        return level.withTime(soft, hard);
+    }
+
+    /**
+     * Limits for one move under a tournament clock that adds {@code incrementMillis} after every
+     * move. {@code movesToGo} counts the moves until the next time control, or is 0 when all
+     * remaining moves are played on this clock.
+     */
+    public static SearchLimits allocate(SearchLimits level, long remainingMillis, long incrementMillis,
+                                        int movesToGo, int moveNumber) {
+        long usable = Math.max(0, remainingMillis - MOVE_OVERHEAD_MILLIS);
+        int moves = movesToGo > 0 ? movesToGo : Math.max(MIN_MOVES_TO_GO, EXPECTED_GAME_MOVES - moveNumber);
+        // Most of the increment can be spent at once, since it comes back with the move.
+        long bonus = Math.min(incrementMillis * 3 / 4, usable / 2);
+        long soft = usable / moves + bonus;
+        long hard = Math.min(soft * HARD_TO_SOFT, usable / MAX_CLOCK_FRACTION + bonus);
+        soft = Math.min(soft, hard);
+        return level.withTime(soft, hard);
+    }
+}
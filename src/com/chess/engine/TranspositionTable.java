@@ -0,0 +1,144 @@
+package com.chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results, shared by all search threads without locking.
+ * <p>
+ * Entries live in one {@code long[]} as (key ^ data, data) pairs. A reader recomputes the key
+ * from both words, so an entry torn by concurrent writers simply fails verification and counts
+ * as a miss. Entries are grouped in buckets of two: the first slot keeps the deepest result of
+ * the current search, the second is overwritten every time the first is not. Each stored entry
+ * is stamped with the search generation, and entries from earlier searches are replaced first.
+ */
+public final class TranspositionTable {
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    /** System property holding the table size in megabytes. */
+    public static final String SIZE_PROPERTY = "chess.hash.mb";
+    public static final int DEFAULT_MEGABYTES = 64;
+
+    private static final int ENTRY_LONGS = 2;
+    private static final int BUCKET_LONGS = 2 * ENTRY_LONGS;
+    private static final int MAX_LONGS = 1 << 30;
+
+    // data layout: move (17 bits) | score (16) | depth (8) | bound (2) | generation (8)
+    private static final int SCORE_SHIFT = 17;
+    private static final int DEPTH_SHIFT = 33;
+    private static final int BOUND_SHIFT = 41;
+    private static final int GENERATION_SHIFT = 43;
+
+    private long[] table;
+    private int bucketMask;
+    private int generation;
+
+    public TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    /** Table sized from the {@value #SIZE_PROPERTY} system property. */
+    public static TranspositionTable configured() {
+        return new TranspositionTable(Integer.getInteger(SIZE_PROPERTY, DEFAULT_MEGABYTES));
+    }
+
+    /** Reallocates the table for a new memory budget; all entries are lost. Not safe during a search. */
+    public void resize(int megabytes) {
+        if (megabytes < 1) throw new IllegalArgumentException("Hash size must be at least 1 MB");
+        long longs = Math.min(MAX_LONGS, megabytes * (1L << 20) / Long.BYTES);
+        int buckets = Integer.highestOneBit((int) (longs / BUCKET_LONGS));
+        table = new long[buckets * BUCKET_LONGS];
+        bucketMask = buckets - 1;
+        generation = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0L);
+        generation = 0;
+    }
+
+    /** Starts a new search; entries written by earlier searches become preferred victims. */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public long sizeInBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    /** The stored data word for a key, or 0 if the key is not in the table. */
+    public long probe(long key) {
+        long[] t = table;
+        int base = bucket(key);
+        for (int slot = base; slot < base + BUCKET_LONGS; slot += ENTRY_LONGS) {
+            long data = t[slot + 1];
+            if ((t[slot] ^ data) == key && data != 0) return data;
+        }
+        return 0L;
+    }
+
+    /** Stores a result; depth must be in 0..255 and score must fit in a short. */
+    public void store(long key, int move, int score, int depth, int bound) {
+        long[] t = table;
+        int base = bucket(key);
+        int slot = base;
+
+        long primary = t[base + 1];
+        boolean samePosition = (t[base] ^ primary) == key;
+        if (!samePosition && primary != 0 && generation(primary) == generation && depth < depth(primary)) {
+            // The deep entry from this search stays; the always-replace slot takes the new result.
+            slot = base + ENTRY_LONGS;
+            long secondary = t[slot + 1];
+            samePosition = (t[slot] ^ secondary) == key;
+            primary = secondary;
+        }
+        if (move == 0 && samePosition) {
+            move = move(primary);
+        }
+
+        long data = (move & 0x1FFFFL)
+                | ((score & 0xFFFFL) << SCORE_SHIFT)
+                | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) generation << GENERATION_SHIFT);
+        t[slot] = key ^ data;
+        t[slot + 1] = data;
+    }
+
+    /** Permille of sampled slots written during the current search, as reported by UCI {@code hashfull}. */
+    public int hashfull() {
+        long[] t = table;
+        int sampled = Math.min(1000, t.length / ENTRY_LONGS);
+        int used = 0;
+        for (int i = 0; i < sampled; i++) {
+            long data = t[i * ENTRY_LONGS + 1];
+            if (data != 0 && generation(data) == generation) used++;
+        }
+        return sampled == 0 ? 0 : used * 1000 / sampled;
+    }
+
+    private int bucket(long key) {
+        return (int) (key >>> 32 & bucketMask) * BUCKET_LONGS;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0x1FFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 3;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & 0xFF;
+    }
+}
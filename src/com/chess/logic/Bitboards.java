@@ -0,0 +1,109 @@
+package com.chess.logic;
+
+/**
+ * Static attack tables and bit helpers for the 64-bit board representation.
+ * Squares are numbered {@code row * 8 + col}, matching {@link GameLogic#board},
+ * so a8 is square 0 and h1 is square 63.
+ */
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = 0x8080808080808080L;
+    public static final long ROW_0 = 0x00000000000000FFL;
+    public static final long ROW_7 = 0xFF00000000000000L;
+
+    static final int NORTH = 0, SOUTH = 1, EAST = 2, WEST = 3;
+    static final int NORTH_EAST = 4, NORTH_WEST = 5, SOUTH_EAST = 6, SOUTH_WEST = 7;
+
+    private static final int[] DIR_ROW = {-1, 1, 0, 0, -1, -1, 1, 1};
+    private static final int[] DIR_COL = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    static final long[][] RAYS = new long[8][64];
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+    /** Squares attacked by a pawn of the given color standing on a square. */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+    /** Squares strictly between two squares on a common rank, file or diagonal; 0 otherwise. */
+    public static final long[][] BETWEEN = new long[64][64];
+    /** The full line through two aligned squares, edge to edge; 0 if they are not aligned. */
+    public static final long[][] LINE = new long[64][64];
+
+    private static final int[] OPPOSITE = {SOUTH, NORTH, WEST, EAST, SOUTH_WEST, SOUTH_EAST, NORTH_WEST, NORTH_EAST};
+
+    static {
+        int[][] knightSteps = {{1, 2}, {1, -2}, {-1, 2}, {-1, -2}, {2, 1}, {2, -1}, {-2, 1}, {-2, -1}};
+        for (int sq = 0; sq < 64; sq++) {
+            int r = sq >>> 3, c = sq & 7;
+            for (int dir = 0; dir < 8; dir++) {
+                long ray = 0L;
+                for (int i = 1; i < 8; i++) {
+                    int nr = r + i * DIR_ROW[dir], nc = c + i * DIR_COL[dir];
+                    if (!onBoard(nr, nc)) break;
+                    ray |= bit(nr * 8 + nc);
+                }
+                RAYS[dir][sq] = ray;
+
+                int kr = r + DIR_ROW[dir], kc = c + DIR_COL[dir];
+                if (onBoard(kr, kc)) KING_ATTACKS[sq] |= bit(kr * 8 + kc);
+            }
+            for (int[] step : knightSteps) {
+                int nr = r + step[0], nc = c + step[1];
+                if (onBoard(nr, nc)) KNIGHT_ATTACKS[sq] |= bit(nr * 8 + nc);
+            }
+            for (int dc : new int[]{-1, 1}) {
+                if (onBoard(r - 1, c + dc)) PAWN_ATTACKS[Position.WHITE][sq] |= bit((r - 1) * 8 + c + dc);
+                if (onBoard(r + 1, c + dc)) PAWN_ATTACKS[Position.BLACK][sq] |= bit((r + 1) * 8 + c + dc);
+            }
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            for (int dir = 0; dir < 8; dir++) {
+                long line = RAYS[dir][sq] | RAYS[OPPOSITE[dir]][sq] | bit(sq);
+                long ray = RAYS[dir][sq];
+                while (ray != 0) {
+                    int target = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    BETWEEN[sq][target] = (RAYS[dir][sq] ^ RAYS[dir][target]) & ~bit(target);
+                    LINE[sq][target] = line;
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    private static boolean onBoard(int r, int c) {
+        return r >= 0 && r < 8 && c >= 0 && c < 8;
+    }
+
+    public static long bit(int sq) {
+        return 1L << sq;
+    }
+
+    /** Sliding attacks along one ray, stopping at (and including) the first blocker. */
+    static long rayAttacks(int dir, int sq, long occupied) {
+        long attacks = RAYS[dir][sq];
+        long blockers = attacks & occupied;
+        if (blockers != 0) {
+            // Rays towards higher square numbers hit their nearest blocker at the lowest set bit.
+            int first = (dir == SOUTH || dir == EAST || dir == SOUTH_EAST || dir == SOUTH_WEST)
+                    ? Long.numberOfTrailingZeros(blockers)
+                    : 63 - Long.numberOfLeadingZeros(blockers);
+            attacks ^= RAYS[dir][first];
+        }
+        return attacks;
+    }
+
+    public static long rookAttacks(int sq, long occupied) {
+        return rayAttacks(NORTH, sq, occupied) | rayAttacks(SOUTH, sq, occupied)
+                | rayAttacks(EAST, sq, occupied) | rayAttacks(WEST, sq, occupied);
+    }
+
+    public static long bishopAttacks(int sq, long occupied) {
+        return rayAttacks(NORTH_EAST, sq, occupied) | rayAttacks(NORTH_WEST, sq, occupied)
+                | rayAttacks(SOUTH_EAST, sq, occupied) | rayAttacks(SOUTH_WEST, sq, occupied);
+    }
+
+    public static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+}
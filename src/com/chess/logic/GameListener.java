@@ -0,0 +1,16 @@
+package com.chess.logic;
+
+import com.chess.model.MoveRecord;
+import com.chess.model.PieceColor;
+
+/**
+ * Receives the events of a {@link GameLogic} game. Listeners are called on the thread that
+ * played the move; a user interface hands them over to its own thread itself.
+ */
+public interface GameListener {
+    /** A move was played and the turn passed to {@code nextPlayer}. */
+    void movePlayed(MoveRecord record, PieceColor nextPlayer);
+
+    /** The move just reported ended the game by checkmate or stalemate. */
+    void gameOver(String message);
+}
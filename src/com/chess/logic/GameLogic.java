@@ -1,31 +1,73 @@
 package com.chess.logic;
 
-import com.chess.ChessGame;
 import com.chess.model.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Stack;
-import java.util.stream.Collectors;
-import javax.swing.*;
 
+/**
+ * The rules side of a game: board, turn, history and game end. It knows nothing of how the
+ * game is shown; whoever does that subscribes as a {@link GameListener}.
+ */
 public class GameLogic {
-    public final Piece[][] board;
+    // Mailbox view of the bitboard position, refreshed after every move and undo.
+    private final Piece[][] board;
     public PieceColor currentPlayer;
     public Piece selectedPiece;
     public int selectedRow, selectedCol;
     public List<Move> validMoves;
     public boolean isGameOver;
     public boolean isPaused = false;
-    private final ChessGame chessGame;
+    // Side played by the engine, or null when both sides are human.
+    public PieceColor aiColor;
+    private final List<GameListener> listeners = new ArrayList<>();
     private int moveCount = 1;
     public final Stack<MoveRecord> moveHistory = new Stack<>();
+    private final Position position = new Position();
+    private final MoveList legalMoves = new MoveList();
+    private boolean legalMovesStale = true;
 
 
-    public GameLogic(ChessGame chessGame) {
-        this.chessGame = chessGame;
+    public GameLogic() {
         board = new Piece[8][8];
         setupInitialBoard();
         currentPlayer = PieceColor.WHITE;
+        position.load(board, currentPlayer);
+        isGameOver = false;
+    }
+
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    /** The piece on a square, or null if it is empty. */
+    public Piece pieceAt(int row, int col) {
+        return board[row][col];
+    }
+
+    /** Zobrist key of the current position: pieces, side to move, castling rights and en passant file. */
+    public long getPositionKey() {
+        return position.key();
+    }
+
+    /** Replaces the game with the position described by a FEN string and clears the history. */
+    public void loadPosition(String fen) {
+        position.loadFen(fen);
+        legalMovesStale = true;
+        refreshBoard();
+        currentPlayer = PieceColor.values()[position.sideToMove()];
+        moveCount = position.fullmoveNumber();
+        moveHistory.clear();
+        selectedPiece = null;
+        validMoves = null;
         isGameOver = false;
     }
 
@@ -33,12 +75,9 @@ public class GameLogic {
         if (moveHistory.isEmpty()) return null;
 
         MoveRecord lastRecord = moveHistory.pop();
-        Move lastMove = lastRecord.move();
-        Piece capturedPiece = lastRecord.capturedPiece();
-
-        Piece movedPiece = board[lastMove.endRow()][lastMove.endCol()];
-        board[lastMove.startRow()][lastMove.startCol()] = movedPiece;
-        board[lastMove.endRow()][lastMove.endCol()] = capturedPiece;
+        position.unmake();
+        legalMovesStale = true;
+        refreshBoard();
 
         switchPlayerBack();
         
@@ -73,7 +112,13 @@ public class GameLogic {
         }
     }
 
+    /** Selects a piece or moves the selected one; a pawn reaching the last rank becomes a queen. */
     public void handleSquareSelection(int row, int col) {
+        handleSquareSelection(row, col, PieceType.QUEEN);
+    }
+
+    /** Selects a piece or moves the selected one, promoting to the given piece where that applies. */
+    public void handleSquareSelection(int row, int col, PieceType promotion) {
         if (selectedPiece == null) {
             Piece piece = board[row][col];
             if (piece != null && piece.color() == currentPlayer) {
@@ -83,13 +128,12 @@ public class GameLogic {
                 validMoves = calculateValidMoves(row, col);
             }
         } else {
-            Move intendedMove = new Move(selectedRow, selectedCol, row, col);
-            boolean isValidMove = validMoves.stream().anyMatch(m -> m.equals(intendedMove));
+            Move intendedMove = new Move(selectedRow, selectedCol, row, col,
+                    isPromotion(row, col) ? promotion : null);
+            boolean isValidMove = validMoves.contains(intendedMove);
 
             if (isValidMove) {
-                MoveRecord record = movePiece(intendedMove); // Get the record
-                checkForPawnPromotion(row, col);
-                switchPlayer(record); // Pass the record
+                switchPlayer(movePiece(intendedMove));
             }
 
             selectedPiece = null;
@@ -97,52 +141,87 @@ public class GameLogic {
         }
     }
 
+    /** Whether moving the selected piece to the square promotes it, so a promotion piece is needed. */
+    public boolean isPromotion(int row, int col) {
+        if (validMoves == null) return false;
+        for (Move move : validMoves) {
+            if (move.endRow() == row && move.endCol() == col && move.promotion() != null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Plays a legal move in packed form, including its promotion piece, and hands the turn over.
+     *
+     * @throws IllegalArgumentException if the move is not legal; nothing is changed then
+     */
+    public MoveRecord playMove(int packedMove) {
+        if (!legalMoves().contains(packedMove)) throw new IllegalArgumentException("illegal move " + PackedMove.toUci(packedMove));
+        MoveRecord record = makeMove(PackedMove.toMove(packedMove), packedMove);
+        switchPlayer(record);
+        return record;
+    }
+
+    public boolean isAiTurn() {
+        return aiColor != null && currentPlayer == aiColor && !isGameOver;
+    }
+
+    /**
+     * Plays a move without handing the turn over.
+     *
+     * @throws IllegalArgumentException if the move is not legal; nothing is changed then
+     */
     public MoveRecord movePiece(Move move) {
-        Piece movingPiece = board[move.startRow()][move.startCol()];
-        Piece capturedPiece = board[move.endRow()][move.endCol()];
+        return makeMove(move, toPackedMove(move));
+    }
 
-        String pgn = convertMoveToPgn(move, movingPiece, capturedPiece != null);
+    private MoveRecord makeMove(Move move, int packedMove) {
+        // Written before the move is made, since SAN is relative to the position it is played in.
+        String pgn = notation(packedMove);
+
+        position.make(packedMove);
+        legalMovesStale = true;
+        refreshBoard();
+
+        // Taken from the position so that en passant records the pawn behind the target square.
+        Piece capturedPiece = Position.pieceOf(position.lastCaptured());
         MoveRecord record = new MoveRecord(move, capturedPiece, pgn);
         moveHistory.push(record);
 
-        board[move.endRow()][move.endCol()] = movingPiece;
-        board[move.startRow()][move.startCol()] = null;
-
         return record;
     }
 
-    public String convertMoveToPgn(Move move, Piece movedPiece, boolean isCapture) {
-        // ... (Original content unchanged) ...
-        StringBuilder sb = new StringBuilder();
-        if (movedPiece.color() == PieceColor.WHITE) {
-            sb.append(moveCount).append(". ");
+    // Looks the move up among the legal moves so castling, en passant and double pushes carry
+    // their flags. Runs before anything is touched, so an illegal move leaves the game as it was.
+    private int toPackedMove(Move move) {
+        int from = move.startRow() * 8 + move.startCol();
+        int to = move.endRow() * 8 + move.endCol();
+        int promotion = move.promotion() == null ? 0 : move.promotion().ordinal();
+        MoveList moves = legalMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            int candidate = moves.get(i);
+            if (PackedMove.from(candidate) == from && PackedMove.to(candidate) == to
+                    && PackedMove.promotionType(candidate) == promotion) {
+                return candidate;
+            }
         }
-
-        sb.append(getPieceChar(movedPiece.type()));
-        sb.append(getSquareName(move.startRow(), move.startCol()));
-        sb.append(isCapture ? "x" : "-");
-        sb.append(getSquareName(move.endRow(), move.endCol()));
-
-        return sb.toString();
+        throw new IllegalArgumentException("illegal move " + move);
     }
 
-    private String getPieceChar(PieceType type) {
-        // ... (Original content unchanged) ...
-        return switch (type) {
-            case KNIGHT -> "N";
-            case BISHOP -> "B";
-            case ROOK -> "R";
-            case QUEEN -> "Q";
-            case KING -> "K";
-            default -> "";
-        };
+    private void refreshBoard() {
+        for (int sq = 0; sq < 64; sq++) {
+            board[sq >>> 3][sq & 7] = Position.pieceOf(position.pieceAt(sq));
+        }
     }
 
-    private String getSquareName(int row, int col) {
-        // ... (Original content unchanged) ...
-        char file = (char) ('a' + col);
-        int rank = 8 - row;
-        return "" + file + rank;
+    // The move in SAN, numbered when White plays it, e.g. "12. Nbd2+" or "exd5".
+    private String notation(int packedMove) {
+        StringBuilder sb = new StringBuilder(12);
+        if (position.sideToMove() == Position.WHITE) {
+            sb.append(moveCount).append(". ");
+        }
+        San.append(position, packedMove, legalMoves(), sb);
+        return sb.toString();
     }
 
     public void switchPlayerBack() {
@@ -164,240 +243,65 @@ public class GameLogic {
 
         currentPlayer = (currentPlayer == PieceColor.WHITE) ? PieceColor.BLACK : PieceColor.WHITE;
 
-        // === MODIFIED: UI Update Block ===
-        final PieceColor newPlayer = currentPlayer;
-        SwingUtilities.invokeLater(() -> {
-            // Update history and captured pieces
-            if (record != null) {
-                chessGame.getGameContainerPanel().getHistoryPanel().addMove(record.pgn());
-                if (record.capturedPiece() != null) {
-                    // Find the piece that just moved to get its color
-                    Piece movingPiece = board[record.move().endRow()][record.move().endCol()];
-                    if (movingPiece != null) {
-                        chessGame.getGameContainerPanel().getInfoPanel().addCapturedPiece(
-                                record.capturedPiece(), movingPiece.color());
-                    }
-                }
-            }
-
-            // Update status label and timers
-            chessGame.getGameContainerPanel().updateStatus(newPlayer + "'s Turn");
-            if (newPlayer == PieceColor.WHITE) {
-                chessGame.getGameContainerPanel().stopBlackTimer();
-                chessGame.getGameContainerPanel().startWhiteTimer();
-            } else {
-                chessGame.getGameContainerPanel().stopWhiteTimer();
-                chessGame.getGameContainerPanel().startBlackTimer();
-            }
-
-            // === FIX FOR UNDO BUTTON ===
-            // Re-evaluate the state of the action buttons (mainly for the Undo button)
-            chessGame.getGameContainerPanel().getInfoPanel().updateActionButtonsState(true);
-        });
-        // === End of Modified Block ===
-
+        String result = null;
         if (isCheckmate(currentPlayer)) {
             isGameOver = true;
             String winner = (currentPlayer == PieceColor.WHITE ? "Black" : "White");
-            SwingUtilities.invokeLater(() -> chessGame.handleGameOver("Checkmate! " + winner + " wins."));
+            result = "Checkmate! " + winner + " wins.";
         } else if (isStalemate(currentPlayer)) {
             isGameOver = true;
-            SwingUtilities.invokeLater(() -> chessGame.handleGameOver("Stalemate! The game is a draw."));
+            result = "Stalemate! The game is a draw.";
         }
-    }
 
-    private void checkForPawnPromotion(int row, int col) {
-        // ... (Original content unchanged) ...
-        Piece piece = board[row][col];
-        if (piece != null && piece.type() == PieceType.PAWN) {
-            if ((piece.color() == PieceColor.WHITE && row == 0) || (piece.color() == PieceColor.BLACK && row == 7)) {
-                promotePawn(row, col);
-            }
+        for (GameListener listener : listeners) {
+            listener.movePlayed(record, currentPlayer);
         }
-    }
-
-    private void promotePawn(int row, int col) {
-        // ... (Original content unchanged) ...
-        PieceColor color = board[row][col].color();
-        Object[] options = {"Queen", "Rook", "Bishop", "Knight"};
-        String choice = (String) JOptionPane.showInputDialog(
-                chessGame, "Choose a piece to promote your pawn to:",
-                "Pawn Promotion", JOptionPane.PLAIN_MESSAGE, null, options, "Queen");
-
-        PieceType newType = PieceType.QUEEN;
-        if (choice != null) {
-            newType = switch (choice) {
-                case "Rook" -> PieceType.ROOK;
-                case "Bishop" -> PieceType.BISHOP;
-                case "Knight" -> PieceType.KNIGHT;
-                default -> PieceType.QUEEN;
-            };
+        if (result != null) {
+            for (GameListener listener : listeners) {
+                listener.gameOver(result);
+            }
         }
-        board[row][col] = new Piece(newType, color);
     }
 
+    // Move records are only created here, for the UI; the legal move list itself stays packed.
     public List<Move> calculateValidMoves(int row, int col) {
-        // ... (Original content unchanged) ...
-        List<Move> moves = new ArrayList<>();
         Piece piece = board[row][col];
-        if (piece == null) return moves;
-
-        switch (piece.type()) {
-            case PAWN -> addPawnMoves(moves, piece, row, col);
-            case ROOK -> addSlidingMoves(moves, piece, row, col, new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}});
-            case KNIGHT -> addKnightMoves(moves, piece, row, col);
-            case BISHOP -> addSlidingMoves(moves, piece, row, col, new int[][]{{1, 1}, {1, -1}, {-1, 1}, {-1, -1}});
-            case QUEEN -> addSlidingMoves(moves, piece, row, col, new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}});
-            case KING -> addKingMoves(moves, piece, row, col);
-        }
-
-        return moves.stream()
-                .filter(move -> !moveLeavesKingInCheck(move, piece.color()))
-                .collect(Collectors.toList());
-    }
-
-    private void addPawnMoves(List<Move> moves, Piece piece, int r, int c) {
-        // ... (Original content unchanged) ...
-        int direction = (piece.color() == PieceColor.WHITE) ? -1 : 1;
-        int startRow = (piece.color() == PieceColor.WHITE) ? 6 : 1;
-
-        if (isValid(r + direction, c) && board[r + direction][c] == null) {
-            moves.add(new Move(r, c, r + direction, c));
-            if (r == startRow && isValid(r + 2 * direction, c) && board[r + 2 * direction][c] == null) {
-                moves.add(new Move(r, c, r + 2 * direction, c));
-            }
-        }
-        for (int dc : new int[]{-1, 1}) {
-            if (isValid(r + direction, c + dc) && board[r + direction][c + dc] != null &&
-                    board[r + direction][c + dc].color() != piece.color()) {
-                moves.add(new Move(r, c, r + direction, c + dc));
-            }
-        }
-    }
-
-    private void addSlidingMoves(List<Move> moves, Piece piece, int r, int c, int[][] directions) {
-        // ... (Original content unchanged) ...
-        for (int[] dir : directions) {
-            for (int i = 1; i < 8; i++) {
-                int newRow = r + i * dir[0];
-                int newCol = c + i * dir[1];
-                if (!isValid(newRow, newCol)) break;
-                if (board[newRow][newCol] == null) {
-                    moves.add(new Move(r, c, newRow, newCol));
-                } else {
-                    if (board[newRow][newCol].color() != piece.color()) {
-                        moves.add(new Move(r, c, newRow, newCol));
-                    }
-                    break;
-                }
-            }
-        }
-    }
+        if (piece == null || piece.color().ordinal() != position.sideToMove()) return List.of();
 
-    private void addKnightMoves(List<Move> moves, Piece piece, int r, int c) {
-        // ... (Original content unchanged) ...
-        int[][] knightMoves = {{1, 2}, {1, -2}, {-1, 2}, {-1, -2}, {2, 1}, {2, -1}, {-2, 1}, {-2, -1}};
-        for (int[] move : knightMoves) {
-            int newRow = r + move[0];
-            int newCol = c + move[1];
-            if (isValid(newRow, newCol) && (board[newRow][newCol] == null || board[newRow][newCol].color() != piece.color())) {
-                moves.add(new Move(r, c, newRow, newCol));
+        List<Move> moves = new ArrayList<>();
+        int from = row * 8 + col;
+        MoveList legal = legalMoves();
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if (PackedMove.from(move) == from) {
+                moves.add(PackedMove.toMove(move));
             }
         }
+        return moves;
     }
 
-    private void addKingMoves(List<Move> moves, Piece piece, int r, int c) {
-        // ... (Original content unchanged) ...
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                if (dr == 0 && dc == 0) continue;
-                int newRow = r + dr;
-                int newCol = c + dc;
-                if (isValid(newRow, newCol) && (board[newRow][newCol] == null || board[newRow][newCol].color() != piece.color())) {
-                    moves.add(new Move(r, c, newRow, newCol));
-                }
-            }
+    private MoveList legalMoves() {
+        if (legalMovesStale) {
+            MoveGenerator.generateLegal(position, legalMoves);
+            legalMovesStale = false;
         }
-    }
-
-    private boolean isValid(int r, int c) {
-        // ... (Original content unchanged) ...
-        return r >= 0 && r < 8 && c >= 0 && c < 8;
+        return legalMoves;
     }
 
     public boolean isKingInCheck(PieceColor kingColor) {
-        // ... (Original content unchanged) ...
-        int kingRow = -1, kingCol = -1;
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) {
-                if (board[r][c] != null && board[r][c].type() == PieceType.KING && board[r][c].color() == kingColor) {
-                    kingRow = r;
-                    kingCol = c;
-                    break;
-                }
-            }
-        }
-        if (kingRow == -1) return false;
-
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) {
-                Piece piece = board[r][c];
-                if (piece != null && piece.color() != kingColor) {
-                    List<Move> opponentMoves = calculateRawMoves(r, c);
-                    for (Move move : opponentMoves) {
-                        if (move.endRow() == kingRow && move.endCol() == kingCol) {
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
-    private boolean moveLeavesKingInCheck(Move move, PieceColor playerColor) {
-        // ... (Original content unchanged) ...
-        Piece temp = board[move.endRow()][move.endCol()];
-        board[move.endRow()][move.endCol()] = board[move.startRow()][move.startCol()];
-        board[move.startRow()][move.startCol()] = null;
-
-        boolean leavesCheck = isKingInCheck(playerColor);
-
-        board[move.startRow()][move.startCol()] = board[move.endRow()][move.endCol()];
-        board[move.endRow()][move.endCol()] = temp;
-
-        return leavesCheck;
-    }
-
-    private List<Move> calculateRawMoves(int row, int col) {
-        // ... (Original content unchanged) ...
-        List<Move> moves = new ArrayList<>();
-        Piece piece = board[row][col];
-        if (piece == null) return moves;
-
-        switch (piece.type()) {
-            case PAWN -> addPawnMoves(moves, piece, row, col);
-            case ROOK -> addSlidingMoves(moves, piece, row, col, new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}});
-            case KNIGHT -> addKnightMoves(moves, piece, row, col);
-            case BISHOP -> addSlidingMoves(moves, piece, row, col, new int[][]{{1, 1}, {1, -1}, {-1, 1}, {-1, -1}});
-            case QUEEN -> addSlidingMoves(moves, piece, row, col, new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}});
-            case KING -> addKingMoves(moves, piece, row, col);
-        }
-        return moves;
+        return position.isInCheck(kingColor.ordinal());
     }
 
     public boolean hasAnyLegalMoves(PieceColor playerColor) {
-        // ... (Original content unchanged) ...
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) {
-                if (board[r][c] != null && board[r][c].color() == playerColor) {
-                    if (!calculateValidMoves(r, c).isEmpty()) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        if (playerColor.ordinal() == position.sideToMove()) return !legalMoves().isEmpty();
+        // Asked for the side not to move: generate as if it were its turn. Castling and en passant
+        // cannot decide this, since a legal castle needs a legal king step and en passant is
+        // never available to that side.
+        Position other = new Position();
+        other.load(board, playerColor);
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(other, moves);
+        return !moves.isEmpty();
     }
 
     public boolean isCheckmate(PieceColor playerColor) {
@@ -0,0 +1,349 @@
+package com.chess.logic;
+
+import static com.chess.logic.Position.*;
+
+/**
+ * Bitboard move generator. Moves are written as {@link PackedMove} ints into a
+ * caller-supplied array and the number of moves written is returned.
+ */
+public final class MoveGenerator {
+    public static final int MAX_MOVES = 256;
+
+    /** Move kinds to generate. Captures include en passant and every promotion; quiets are the rest. */
+    public static final int ALL = 0, CAPTURES = 1, QUIETS = 2;
+
+    private static final long PROMOTION_ROWS = Bitboards.ROW_0 | Bitboards.ROW_7;
+
+    // Rows a single pawn push lands on when a double push is still possible.
+    private static final long WHITE_DOUBLE_PUSH_ROW = 0xFFL << 40;
+    private static final long BLACK_DOUBLE_PUSH_ROW = 0xFFL << 16;
+
+    private MoveGenerator() {
+    }
+
+    public static int generateLegal(Position pos, MoveList list) {
+        list.size = generateLegal(pos, list.moves, ALL);
+        return list.size;
+    }
+
+    /** Generates the legal moves of one kind: {@link #ALL}, {@link #CAPTURES} or {@link #QUIETS}. */
+    public static int generateLegal(Position pos, MoveList list, int kind) {
+        list.size = generateLegal(pos, list.moves, kind);
+        return list.size;
+    }
+
+    public static int generateLegal(Position pos, int[] moves) {
+        return generateLegal(pos, moves, ALL);
+    }
+
+    /**
+     * Generates legal moves for the side to move. Checkers and pinned pieces are found
+     * once per position and used as target masks, so no move has to be made and unmade to
+     * test it; only en passant captures, which can expose the king along the rank, are verified that way.
+     */
+    public static int generateLegal(Position pos, int[] moves, int kind) {
+        int us = pos.sideToMove();
+        int them = us ^ 1;
+        int king = pos.kingSquare(us);
+        if (king < 0) return keepKind(pos, moves, generatePseudoLegal(pos, moves), kind);
+
+        long own = pos.occupancy(us);
+        long enemy = pos.occupancy(them);
+        long occupied = pos.occupied();
+        long checkers = pos.attackersTo(king, occupied) & enemy;
+        long kindMask = kind == CAPTURES ? enemy : kind == QUIETS ? ~occupied : -1L;
+
+        int n = addKingMoves(pos, moves, 0, us, king, own, occupied, kindMask);
+        if (checkers == 0) {
+            if (kind != CAPTURES) n = addCastling(pos, moves, n, us, king, occupied);
+        } else if ((checkers & (checkers - 1)) != 0) {
+            return n; // double check: only the king can move
+        }
+
+        // Non-king moves must land on these squares: anywhere, or on the checker and the line between it and the king.
+        long evasion = checkers == 0 ? -1L : checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        long pinned = pinnedPieces(pos, us, king, own, enemy, occupied);
+        long targets = ~own & evasion & kindMask;
+
+        n = addLegalPawnMoves(pos, moves, n, us, king, enemy, occupied, evasion, pinned, kind);
+
+        long knights = pos.pieces(us, KNIGHT) & ~pinned;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            n = addTargets(moves, n, from, Bitboards.KNIGHT_ATTACKS[from] & targets);
+        }
+        long diagonal = pos.pieces(us, BISHOP) | pos.pieces(us, QUEEN);
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            diagonal &= diagonal - 1;
+            long allowed = (pinned & (1L << from)) != 0 ? targets & Bitboards.LINE[king][from] : targets;
+            n = addTargets(moves, n, from, Bitboards.bishopAttacks(from, occupied) & allowed);
+        }
+        long straight = pos.pieces(us, ROOK) | pos.pieces(us, QUEEN);
+        while (straight != 0) {
+            int from = Long.numberOfTrailingZeros(straight);
+            straight &= straight - 1;
+            long allowed = (pinned & (1L << from)) != 0 ? targets & Bitboards.LINE[king][from] : targets;
+            n = addTargets(moves, n, from, Bitboards.rookAttacks(from, occupied) & allowed);
+        }
+        return n;
+    }
+
+    /** Own pieces that are the only blocker between the king and an enemy slider. */
+    private static long pinnedPieces(Position pos, int us, int king, long own, long enemy, long occupied) {
+        int them = us ^ 1;
+        long queens = pos.pieces(them, QUEEN);
+        long snipers = (Bitboards.rookAttacks(king, enemy) & (pos.pieces(them, ROOK) | queens))
+                | (Bitboards.bishopAttacks(king, enemy) & (pos.pieces(them, BISHOP) | queens));
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.BETWEEN[king][sniper] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & own;
+            }
+        }
+        return pinned;
+    }
+
+    private static int addKingMoves(Position pos, int[] moves, int n, int us, int king, long own, long occupied,
+                                    long kindMask) {
+        // The king is lifted off the board so sliders attack straight through its current square.
+        long withoutKing = occupied & ~(1L << king);
+        long targets = Bitboards.KING_ATTACKS[king] & ~own & kindMask;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (!pos.isSquareAttacked(to, us ^ 1, withoutKing)) {
+                moves[n++] = PackedMove.of(king, to);
+            }
+        }
+        return n;
+    }
+
+    private static int addLegalPawnMoves(Position pos, int[] moves, int n, int us, int king, long enemy,
+                                         long occupied, long evasion, long pinned, int kind) {
+        int first = n;
+        n = addPawnMoves(pos, moves, n, us, enemy, occupied, kind);
+        int kept = first;
+        for (int i = first; i < n; i++) {
+            int move = moves[i];
+            int from = PackedMove.from(move), to = PackedMove.to(move);
+            boolean legal;
+            if (PackedMove.flag(move) == PackedMove.EN_PASSANT) {
+                pos.make(move);
+                legal = !pos.isInCheck(us);
+                pos.unmake();
+            } else {
+                legal = (evasion & (1L << to)) != 0
+                        && ((pinned & (1L << from)) == 0 || (Bitboards.LINE[king][from] & (1L << to)) != 0);
+            }
+            if (legal) moves[kept++] = move;
+        }
+        return kept;
+    }
+
+    /** Generates moves without checking whether they leave the own king attacked. */
+    public static int generatePseudoLegal(Position pos, int[] moves) {
+        int us = pos.sideToMove();
+        int them = us ^ 1;
+        long own = pos.occupancy(us);
+        long enemy = pos.occupancy(them);
+        long occupied = pos.occupied();
+        long targets = ~own;
+        int n = addPawnMoves(pos, moves, 0, us, enemy, occupied, ALL);
+
+        long knights = pos.pieces(us, KNIGHT);
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            n = addTargets(moves, n, from, Bitboards.KNIGHT_ATTACKS[from] & targets);
+        }
+        long diagonal = pos.pieces(us, BISHOP) | pos.pieces(us, QUEEN);
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            diagonal &= diagonal - 1;
+            n = addTargets(moves, n, from, Bitboards.bishopAttacks(from, occupied) & targets);
+        }
+        long straight = pos.pieces(us, ROOK) | pos.pieces(us, QUEEN);
+        while (straight != 0) {
+            int from = Long.numberOfTrailingZeros(straight);
+            straight &= straight - 1;
+            n = addTargets(moves, n, from, Bitboards.rookAttacks(from, occupied) & targets);
+        }
+        long king = pos.pieces(us, KING);
+        if (king != 0) {
+            int from = Long.numberOfTrailingZeros(king);
+            n = addTargets(moves, n, from, Bitboards.KING_ATTACKS[from] & targets);
+            n = addCastling(pos, moves, n, us, from, occupied);
+        }
+        return n;
+    }
+
+    // Filters a pseudo-legal list down to one kind of move.
+    private static int keepKind(Position pos, int[] moves, int n, int kind) {
+        if (kind == ALL) return n;
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (isCapture(pos, moves[i]) == (kind == CAPTURES)) moves[kept++] = moves[i];
+        }
+        return kept;
+    }
+
+    /** Whether a move belongs to {@link #CAPTURES}: it takes a piece, en passant included, or promotes. */
+    public static boolean isCapture(Position pos, int move) {
+        return pos.pieceAt(PackedMove.to(move)) != EMPTY || PackedMove.promotionType(move) != 0
+                || PackedMove.flag(move) == PackedMove.EN_PASSANT;
+    }
+
+    /**
+     * Whether a move from somewhere else, such as the hash table or a sibling node, is legal in
+     * this position. Only the moving piece's moves are generated to check it.
+     */
+    public static boolean isLegal(Position pos, int move) {
+        int from = PackedMove.from(move), to = PackedMove.to(move);
+        int us = pos.sideToMove();
+        int piece = pos.pieceAt(from);
+        if (move == PackedMove.NONE || piece == EMPTY || colorOf(piece) != us) return false;
+        int target = pos.pieceAt(to);
+        if (target != EMPTY && (colorOf(target) == us || typeOf(target) == KING)) return false;
+
+        long occupied = pos.occupied();
+        int type = typeOf(piece);
+        boolean pseudoLegal;
+        if (type == PAWN) {
+            pseudoLegal = isPawnMove(pos, move, us, target);
+        } else if (type == KING && PackedMove.flag(move) == PackedMove.CASTLE) {
+            pseudoLegal = (to == from + 2 || to == from - 2) && move == PackedMove.of(from, to, PackedMove.CASTLE)
+                    && canCastle(pos, us, from, occupied, to > from);
+        } else {
+            long attacks = switch (type) {
+                case KNIGHT -> Bitboards.KNIGHT_ATTACKS[from];
+                case BISHOP -> Bitboards.bishopAttacks(from, occupied);
+                case ROOK -> Bitboards.rookAttacks(from, occupied);
+                case QUEEN -> Bitboards.queenAttacks(from, occupied);
+                default -> Bitboards.KING_ATTACKS[from];
+            };
+            pseudoLegal = move == PackedMove.of(from, to) && (attacks & (1L << to)) != 0;
+        }
+        if (!pseudoLegal) return false;
+        if (pos.kingSquare(us) < 0) return true;
+        pos.make(move);
+        boolean legal = !pos.isInCheck(us);
+        pos.unmake();
+        return legal;
+    }
+
+    private static boolean isPawnMove(Position pos, int move, int us, int target) {
+        int from = PackedMove.from(move), to = PackedMove.to(move);
+        int flag = PackedMove.flag(move), promotion = PackedMove.promotionType(move);
+        int forward = us == WHITE ? -8 : 8;
+        boolean promotes = (PROMOTION_ROWS & (1L << to)) != 0;
+        // A move to the last row must promote, to a piece from rook to queen, and no other move may.
+        if (flag == PackedMove.NORMAL ? promotes != (promotion != 0) || promotion > QUEEN : promotion != 0) return false;
+        boolean diagonal = (Bitboards.PAWN_ATTACKS[us][from] & (1L << to)) != 0;
+        return switch (flag) {
+            case PackedMove.NORMAL -> diagonal ? target != EMPTY : to == from + forward && target == EMPTY;
+            case PackedMove.DOUBLE_PUSH -> to == from + 2 * forward && target == EMPTY
+                    && pos.pieceAt(from + forward) == EMPTY
+                    && (from >>> 3) == (us == WHITE ? 6 : 1);
+            case PackedMove.EN_PASSANT -> diagonal && to == pos.enPassantSquare();
+            default -> false;
+        };
+    }
+
+    private static int addTargets(int[] moves, int n, int from, long targets) {
+        while (targets != 0) {
+            moves[n++] = PackedMove.of(from, Long.numberOfTrailingZeros(targets));
+            targets &= targets - 1;
+        }
+        return n;
+    }
+
+    private static int addPawnMoves(Position pos, int[] moves, int n, int us, long enemy, long occupied, int kind) {
+        long pawns = pos.pieces(us, PAWN);
+        long empty = ~occupied;
+        long single, twice, left, right;
+        int forward;
+        if (us == WHITE) {
+            forward = -8;
+            single = (pawns >>> 8) & empty;
+            twice = ((single & WHITE_DOUBLE_PUSH_ROW) >>> 8) & empty;
+            left = ((pawns & ~Bitboards.FILE_A) >>> 9) & enemy;
+            right = ((pawns & ~Bitboards.FILE_H) >>> 7) & enemy;
+        } else {
+            forward = 8;
+            single = (pawns << 8) & empty;
+            twice = ((single & BLACK_DOUBLE_PUSH_ROW) << 8) & empty;
+            left = ((pawns & ~Bitboards.FILE_A) << 7) & enemy;
+            right = ((pawns & ~Bitboards.FILE_H) << 9) & enemy;
+        }
+        if (kind == CAPTURES) {
+            single &= PROMOTION_ROWS;
+            twice = 0;
+        } else if (kind == QUIETS) {
+            single &= ~PROMOTION_ROWS;
+            left = right = 0;
+        }
+        n = addPawnTargets(moves, n, single, forward);
+        n = addPawnTargets(moves, n, left, forward - 1);
+        n = addPawnTargets(moves, n, right, forward + 1);
+        while (twice != 0) {
+            int to = Long.numberOfTrailingZeros(twice);
+            twice &= twice - 1;
+            moves[n++] = PackedMove.of(to - 2 * forward, to, PackedMove.DOUBLE_PUSH);
+        }
+
+        int ep = pos.enPassantSquare();
+        if (ep >= 0 && kind != QUIETS) {
+            long attackers = Bitboards.PAWN_ATTACKS[us ^ 1][ep] & pawns;
+            while (attackers != 0) {
+                int from = Long.numberOfTrailingZeros(attackers);
+                attackers &= attackers - 1;
+                moves[n++] = PackedMove.of(from, ep, PackedMove.EN_PASSANT);
+            }
+        }
+        return n;
+    }
+
+    private static int addPawnTargets(int[] moves, int n, long targets, int offset) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int from = to - offset;
+            if (to < 8 || to >= 56) {
+                moves[n++] = PackedMove.promotion(from, to, QUEEN);
+                moves[n++] = PackedMove.promotion(from, to, ROOK);
+                moves[n++] = PackedMove.promotion(from, to, BISHOP);
+                moves[n++] = PackedMove.promotion(from, to, KNIGHT);
+            } else {
+                moves[n++] = PackedMove.of(from, to);
+            }
+        }
+        return n;
+    }
+
+    private static int addCastling(Position pos, int[] moves, int n, int us, int kingSq, long occupied) {
+        if (canCastle(pos, us, kingSq, occupied, true)) {
+            moves[n++] = PackedMove.of(kingSq, kingSq + 2, PackedMove.CASTLE);
+        }
+        if (canCastle(pos, us, kingSq, occupied, false)) {
+            moves[n++] = PackedMove.of(kingSq, kingSq - 2, PackedMove.CASTLE);
+        }
+        return n;
+    }
+
+    // Rights, empty squares between king and rook, and no attack on the squares the king crosses.
+    private static boolean canCastle(Position pos, int us, int kingSq, long occupied, boolean kingside) {
+        int right = kingside ? (us == WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE)
+                : (us == WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE);
+        if ((pos.castlingRights() & right) == 0) return false;
+        long between = kingside ? 3L << (kingSq + 1) : 7L << (kingSq - 3);
+        int step = kingside ? 1 : -1;
+        int them = us ^ 1;
+        return (occupied & between) == 0 && !pos.isSquareAttacked(kingSq, them)
+                && !pos.isSquareAttacked(kingSq + step, them) && !pos.isSquareAttacked(kingSq + 2 * step, them);
+    }
+}
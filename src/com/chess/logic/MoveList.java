@@ -0,0 +1,50 @@
+package com.chess.logic;
+
+/**
+ * Fixed-capacity buffer of {@link PackedMove} ints. Callers keep one list per ply and reuse
+ * it for every node at that ply, so move generation allocates nothing.
+ */
+public final class MoveList {
+    final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    int size;
+
+    /** One list per ply, for recursive walks that keep a parent's moves while visiting children. */
+    public static MoveList[] perPly(int plies) {
+        MoveList[] lists = new MoveList[plies];
+        for (int i = 0; i < plies; i++) {
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) return true;
+        }
+        return false;
+    }
+}
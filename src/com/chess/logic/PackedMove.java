@@ -0,0 +1,77 @@
+package com.chess.logic;
+
+import com.chess.model.Move;
+import com.chess.model.PieceType;
+
+/**
+ * Moves as used by {@link Position} and {@link MoveGenerator}, packed into an int:
+ * bits 0-5 hold the from-square, bits 6-11 the to-square, bits 12-14 the promotion
+ * piece type (ordinal of {@link com.chess.model.PieceType}, 0 when none) and bits 15-16 a flag.
+ */
+public final class PackedMove {
+    public static final int NONE = 0;
+
+    public static final int NORMAL = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int EN_PASSANT = 2;
+    public static final int CASTLE = 3;
+
+    private PackedMove() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, int flag) {
+        return from | (to << 6) | (flag << 15);
+    }
+
+    public static int promotion(int from, int to, int pieceType) {
+        return from | (to << 6) | (pieceType << 12);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int promotionType(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 15) & 3;
+    }
+
+    /** Coordinate notation such as {@code e2e4} or {@code e7e8q}. */
+    public static String toUci(int move) {
+        String text = Position.squareName(from(move)) + Position.squareName(to(move));
+        return switch (promotionType(move)) {
+            case Position.QUEEN -> text + "q";
+            case Position.ROOK -> text + "r";
+            case Position.BISHOP -> text + "b";
+            case Position.KNIGHT -> text + "n";
+            default -> text;
+        };
+    }
+
+    /** The legal move written in coordinate notation, or {@link #NONE} if it is not legal in the position. */
+    public static int parseUci(Position pos, String text) {
+        MoveList legal = new MoveList();
+        MoveGenerator.generateLegal(pos, legal);
+        for (int i = 0; i < legal.size(); i++) {
+            if (toUci(legal.get(i)).equals(text)) return legal.get(i);
+        }
+        return NONE;
+    }
+
+    public static Move toMove(int move) {
+        int from = from(move), to = to(move);
+        int promotion = promotionType(move);
+        return new Move(from >>> 3, from & 7, to >>> 3, to & 7, promotion == 0 ? null : PieceType.values()[promotion]);
+    }
+}
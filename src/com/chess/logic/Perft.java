@@ -0,0 +1,202 @@
+package com.chess.logic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth. Used as a correctness
+ * check for {@link MoveGenerator} against published node counts and as a throughput benchmark.
+ * Root moves can be split across a {@link ForkJoinPool}, and subtree counts can be kept in
+ * a shared hash table keyed by position and depth. The sequential entry points reuse one
+ * set of per-ply move lists, so an instance must not be counted on from several threads at once;
+ * the fork-join variants give every task its own lists.
+ */
+public final class Perft {
+    private static final int MAX_DEPTH = 64;
+
+    private final Cache cache;
+    private final MoveList[] lists = MoveList.perPly(MAX_DEPTH);
+
+    public Perft() {
+        this(0);
+    }
+
+    public Perft(int cacheMegabytes) {
+        cache = cacheMegabytes > 0 ? new Cache(cacheMegabytes) : null;
+    }
+
+    public long count(Position pos, int depth) {
+        if (depth <= 0) return 1;
+        if (depth > MAX_DEPTH) throw new IllegalArgumentException("Perft depth is limited to " + MAX_DEPTH);
+        return count(pos, depth, lists);
+    }
+
+    public long count(Position pos, int depth, ForkJoinPool pool) {
+        if (depth <= 0) return 1;
+        long nodes = 0;
+        for (long subtree : divide(pos, depth, pool).values()) {
+            nodes += subtree;
+        }
+        return nodes;
+    }
+
+    /** Node counts below each root move, in generation order, keyed by coordinate notation. */
+    public Map<String, Long> divide(Position pos, int depth) {
+        return divide(pos, depth, null);
+    }
+
+    public Map<String, Long> divide(Position pos, int depth, ForkJoinPool pool) {
+        if (depth < 1) throw new IllegalArgumentException("Divide needs a depth of at least 1");
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(pos, moves);
+
+        List<SubtreeTask> tasks = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            tasks.add(new SubtreeTask(pos, moves.get(i), depth - 1, pool != null));
+        }
+        if (pool != null) {
+            for (SubtreeTask task : tasks) {
+                pool.execute(task);
+            }
+        } else {
+            for (SubtreeTask task : tasks) {
+                task.invoke();
+            }
+        }
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (SubtreeTask task : tasks) {
+            result.put(PackedMove.toUci(task.move), task.join());
+        }
+        return result;
+    }
+
+    private long count(Position pos, int depth, MoveList[] buffers) {
+        long key = 0L;
+        if (cache != null && depth > 1) {
+            key = pos.key();
+            long cached = cache.probe(key, depth);
+            if (cached >= 0) return cached;
+        }
+
+        MoveList moves = buffers[depth - 1];
+        int n = MoveGenerator.generateLegal(pos, moves);
+        if (depth == 1) return n;
+
+        long nodes = 0;
+        for (int i = 0; i < n; i++) {
+            pos.make(moves.get(i));
+            nodes += count(pos, depth - 1, buffers);
+            pos.unmake();
+        }
+        if (cache != null) cache.store(key, depth, nodes);
+        return nodes;
+    }
+
+    private final class SubtreeTask extends RecursiveTask<Long> {
+        private final Position root;
+        private final int move;
+        private final int depth;
+        private final boolean parallel;
+
+        SubtreeTask(Position root, int move, int depth, boolean parallel) {
+            // Each task owns a private copy so tasks never share mutable position state.
+            this.root = root.copy();
+            this.move = move;
+            this.depth = depth;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth == 0) return 1L;
+            root.make(move);
+            return count(root, depth, parallel ? MoveList.perPly(depth) : lists);
+        }
+    }
+
+    /**
+     * Lockless table of subtree counts. Each slot stores {@code tag ^ nodes} next to
+     * {@code nodes}, so a slot torn by concurrent writers fails verification and reads as a miss.
+     */
+    private static final class Cache {
+        private final long[] tags;
+        private final long[] nodes;
+        private final int mask;
+
+        Cache(int megabytes) {
+            int slots = Integer.highestOneBit((int) Math.min(1 << 30, megabytes * (1L << 20) / 16));
+            tags = new long[slots];
+            nodes = new long[slots];
+            mask = slots - 1;
+        }
+
+        long probe(long key, int depth) {
+            long tag = tag(key, depth);
+            int index = (int) tag & mask;
+            long count = nodes[index];
+            return (tags[index] ^ count) == tag ? count : -1;
+        }
+
+        void store(long key, int depth, long count) {
+            long tag = tag(key, depth);
+            int index = (int) tag & mask;
+            nodes[index] = count;
+            tags[index] = tag ^ count;
+        }
+
+        private static long tag(long key, int depth) {
+            return key ^ (depth * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    /**
+     * Usage: {@code Perft depth [-fen <fen>] [-divide] [-threads n] [-hash mb]}.
+     * Prints the node count, elapsed time and nodes per second.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: Perft depth [-fen <fen>] [-divide] [-threads n] [-hash mb]");
+            System.exit(1);
+        }
+        int depth = Integer.parseInt(args[0]);
+        String fen = Position.START_FEN;
+        boolean divide = false;
+        int threads = 1;
+        int hashMegabytes = 0;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-fen" -> fen = args[++i];
+                case "-divide" -> divide = true;
+                case "-threads" -> threads = Integer.parseInt(args[++i]);
+                case "-hash" -> hashMegabytes = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Perft perft = new Perft(hashMegabytes);
+        Position pos = Position.fromFen(fen);
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) {
+            nodes = 0;
+            for (Map.Entry<String, Long> entry : perft.divide(pos, depth, pool).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else {
+            nodes = pool != null ? perft.count(pos, depth, pool) : perft.count(pos, depth);
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        if (pool != null) pool.shutdown();
+
+        System.out.println("Nodes: " + nodes);
+        System.out.println("Time: " + elapsed / 1_000_000 + " ms");
+        System.out.println("NPS: " + nodes * 1_000_000_000L / elapsed);
+    }
+}
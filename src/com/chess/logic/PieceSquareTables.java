@@ -0,0 +1,119 @@
+package com.chess.logic;
+
+/**
+ * Material and piece-square values for a midgame and an endgame score, which
+ * {@link Position} keeps up to date on every piece it puts or removes. Values are from White's
+ * point of view, so Black's pieces count negatively, and tables are laid out like the board
+ * with a8 first. The game phase runs from {@link #MAX_PHASE} with all minor and major pieces
+ * on the board down to 0 with none.
+ */
+public final class PieceSquareTables {
+    /** Piece values indexed by piece type: pawn, rook, knight, bishop, queen, king. */
+    public static final int[] PIECE_VALUES = {100, 500, 320, 330, 900, 0};
+    static final int[] ENDGAME_PIECE_VALUES = {120, 520, 300, 330, 920, 0};
+    /** Phase weight by piece type. */
+    static final int[] PHASE_WEIGHTS = {0, 2, 1, 1, 4, 0};
+    public static final int MAX_PHASE = 24;
+
+    // Indexed by piece code and square.
+    static final int[][] MIDGAME = new int[12][64];
+    static final int[][] ENDGAME = new int[12][64];
+
+    private static final int[] PAWN = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    // Passed or not, a pawn is worth more the closer it is to promoting once the pieces are gone.
+    private static final int[] PAWN_ENDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            15, 15, 15, 15, 15, 15, 15, 15,
+            5, 5, 5, 5, 5, 5, 5, 5,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0};
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20};
+    private static final int[] KING = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20};
+    // With the queens off the king belongs in the centre.
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+
+    static {
+        // Indexed by piece type: pawn, rook, knight, bishop, queen, king.
+        int[][] midgame = {PAWN, ROOK, KNIGHT, BISHOP, QUEEN, KING};
+        int[][] endgame = {PAWN_ENDGAME, new int[64], KNIGHT, BISHOP, QUEEN, KING_ENDGAME};
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            for (int sq = 0; sq < 64; sq++) {
+                // Black reads the tables from the other side of the board.
+                int white = Position.code(Position.WHITE, type), black = Position.code(Position.BLACK, type);
+                MIDGAME[white][sq] = PIECE_VALUES[type] + midgame[type][sq];
+                MIDGAME[black][sq] = -(PIECE_VALUES[type] + midgame[type][sq ^ 56]);
+                ENDGAME[white][sq] = ENDGAME_PIECE_VALUES[type] + endgame[type][sq];
+                ENDGAME[black][sq] = -(ENDGAME_PIECE_VALUES[type] + endgame[type][sq ^ 56]);
+            }
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    static int phaseWeight(int code) {
+        return PHASE_WEIGHTS[Position.typeOf(code)];
+    }
+}
@@ -0,0 +1,518 @@
+package com.chess.logic;
+
+import com.chess.model.Piece;
+import com.chess.model.PieceColor;
+import com.chess.model.PieceType;
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a chess position: one long per piece type and color,
+ * occupancy masks per color and a square-indexed mailbox for O(1) piece lookups.
+ * Moves are applied with {@link #make(int)} and reverted with {@link #unmake()}.
+ */
+public final class Position {
+    public static final int WHITE = 0, BLACK = 1;
+    public static final int PAWN = 0, ROOK = 1, KNIGHT = 2, BISHOP = 3, QUEEN = 4, KING = 5;
+    public static final int EMPTY = -1;
+
+    public static final int WHITE_KINGSIDE = 1, WHITE_QUEENSIDE = 2, BLACK_KINGSIDE = 4, BLACK_QUEENSIDE = 8;
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String PIECE_CHARS = "PRNBQKprnbqk";
+
+    private static final int[] CASTLING_MASK = new int[64];
+    private static final Piece[] PIECES = new Piece[12];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[60] = ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[63] = ~WHITE_KINGSIDE;
+        CASTLING_MASK[56] = ~WHITE_QUEENSIDE;
+        CASTLING_MASK[4] = ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[7] = ~BLACK_KINGSIDE;
+        CASTLING_MASK[0] = ~BLACK_QUEENSIDE;
+        for (PieceColor color : PieceColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[code(color.ordinal(), type.ordinal())] = new Piece(type, color);
+            }
+        }
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private long occupied;
+    private final int[] squares = new int[64];
+    private int sideToMove;
+    private int castlingRights;
+    private int enPassantSquare = -1;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private final int[] kingSquares = {-1, -1};
+    private long key;
+    private long pawnKey;
+    private int midgame;
+    private int endgame;
+    private int phase;
+
+    private int ply;
+    private int[] undoMove = new int[256];
+    private int[] undoMoved = new int[256];
+    private int[] undoCaptured = new int[256];
+    private int[] undoState = new int[256];
+    private long[] undoKey = new long[256];
+
+    public Position() {
+        Arrays.fill(squares, EMPTY);
+    }
+
+    public static int code(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int colorOf(int code) {
+        return code >= 6 ? BLACK : WHITE;
+    }
+
+    public static int typeOf(int code) {
+        return code % 6;
+    }
+
+    /** Shared, immutable {@link Piece} instance for a piece code, or null for {@link #EMPTY}. */
+    public static Piece pieceOf(int code) {
+        return code == EMPTY ? null : PIECES[code];
+    }
+
+    /** Loads a mailbox board, deriving castling rights from kings and rooks on their home squares. */
+    public void load(Piece[][] board, PieceColor toMove) {
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        Arrays.fill(squares, EMPTY);
+        occupied = 0L;
+        pawnKey = 0L;
+        midgame = endgame = phase = 0;
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                Piece piece = board[r][c];
+                if (piece != null) {
+                    put(code(piece.color().ordinal(), piece.type().ordinal()), r * 8 + c);
+                }
+            }
+        }
+        sideToMove = toMove.ordinal();
+        castlingRights = 0;
+        if (squares[60] == code(WHITE, KING)) {
+            if (squares[63] == code(WHITE, ROOK)) castlingRights |= WHITE_KINGSIDE;
+            if (squares[56] == code(WHITE, ROOK)) castlingRights |= WHITE_QUEENSIDE;
+        }
+        if (squares[4] == code(BLACK, KING)) {
+            if (squares[7] == code(BLACK, ROOK)) castlingRights |= BLACK_KINGSIDE;
+            if (squares[0] == code(BLACK, ROOK)) castlingRights |= BLACK_QUEENSIDE;
+        }
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        ply = 0;
+        findKings();
+        key = computeKey();
+    }
+
+    public static Position fromFen(String fen) {
+        Position pos = new Position();
+        pos.loadFen(fen);
+        return pos;
+    }
+
+    public void loadFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) throw new IllegalArgumentException("Invalid FEN: " + fen);
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        Arrays.fill(squares, EMPTY);
+        occupied = 0L;
+        pawnKey = 0L;
+        midgame = endgame = phase = 0;
+        int sq = 0;
+        for (char ch : fields[0].toCharArray()) {
+            if (ch == '/') continue;
+            if (ch >= '1' && ch <= '8') {
+                sq += ch - '0';
+            } else {
+                int code = PIECE_CHARS.indexOf(ch);
+                if (code < 0 || sq > 63) throw new IllegalArgumentException("Invalid FEN: " + fen);
+                put(code, sq++);
+            }
+        }
+        sideToMove = fields[1].equals("b") ? BLACK : WHITE;
+        castlingRights = 0;
+        if (fields.length > 2) {
+            for (char ch : fields[2].toCharArray()) {
+                switch (ch) {
+                    case 'K' -> castlingRights |= WHITE_KINGSIDE;
+                    case 'Q' -> castlingRights |= WHITE_QUEENSIDE;
+                    case 'k' -> castlingRights |= BLACK_KINGSIDE;
+                    case 'q' -> castlingRights |= BLACK_QUEENSIDE;
+                    default -> { }
+                }
+            }
+        }
+        enPassantSquare = fields.length > 3 && !fields[3].equals("-") ? parseSquare(fields[3]) : -1;
+        halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+        fullmoveNumber = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+        ply = 0;
+        findKings();
+        key = computeKey();
+    }
+
+    public String toFen() {
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < 8; r++) {
+            int empty = 0;
+            for (int c = 0; c < 8; c++) {
+                int code = squares[r * 8 + c];
+                if (code == EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) sb.append(empty);
+                empty = 0;
+                sb.append(PIECE_CHARS.charAt(code));
+            }
+            if (empty > 0) sb.append(empty);
+            if (r < 7) sb.append('/');
+        }
+        sb.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) sb.append('-');
+        if ((castlingRights & WHITE_KINGSIDE) != 0) sb.append('K');
+        if ((castlingRights & WHITE_QUEENSIDE) != 0) sb.append('Q');
+        if ((castlingRights & BLACK_KINGSIDE) != 0) sb.append('k');
+        if ((castlingRights & BLACK_QUEENSIDE) != 0) sb.append('q');
+        sb.append(' ').append(enPassantSquare < 0 ? "-" : squareName(enPassantSquare));
+        sb.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return sb.toString();
+    }
+
+    /** Independent copy of the current state, including the move history so it can be unmade and checked for repetitions. */
+    public Position copy() {
+        Position copy = new Position();
+        System.arraycopy(pieces, 0, copy.pieces, 0, pieces.length);
+        System.arraycopy(colors, 0, copy.colors, 0, colors.length);
+        System.arraycopy(squares, 0, copy.squares, 0, squares.length);
+        copy.occupied = occupied;
+        copy.sideToMove = sideToMove;
+        copy.castlingRights = castlingRights;
+        copy.enPassantSquare = enPassantSquare;
+        copy.halfmoveClock = halfmoveClock;
+        copy.fullmoveNumber = fullmoveNumber;
+        copy.kingSquares[WHITE] = kingSquares[WHITE];
+        copy.kingSquares[BLACK] = kingSquares[BLACK];
+        copy.key = key;
+        copy.pawnKey = pawnKey;
+        copy.midgame = midgame;
+        copy.endgame = endgame;
+        copy.phase = phase;
+        copy.ply = ply;
+        copy.undoMove = undoMove.clone();
+        copy.undoMoved = undoMoved.clone();
+        copy.undoCaptured = undoCaptured.clone();
+        copy.undoState = undoState.clone();
+        copy.undoKey = undoKey.clone();
+        return copy;
+    }
+
+    /** Zobrist key of the position, maintained incrementally by make, unmake and replacePiece. */
+    public long key() {
+        return key;
+    }
+
+    /** Zobrist key of the pawns alone, 0 without any; maintained like {@link #key()}. */
+    public long pawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Zobrist key computed from scratch. The en passant file only counts when a pawn can
+     * actually capture there, so transpositions reached with and without a double push match.
+     */
+    public long computeKey() {
+        long key = 0L;
+        for (int code = 0; code < 12; code++) {
+            long bb = pieces[code];
+            while (bb != 0) {
+                key ^= Zobrist.PIECE_SQUARE[code][Long.numberOfTrailingZeros(bb)];
+                bb &= bb - 1;
+            }
+        }
+        key ^= Zobrist.CASTLING[castlingRights] ^ enPassantKey();
+        if (sideToMove == BLACK) key ^= Zobrist.SIDE_TO_MOVE;
+        return key;
+    }
+
+    private long enPassantKey() {
+        if (enPassantSquare >= 0
+                && (Bitboards.PAWN_ATTACKS[sideToMove ^ 1][enPassantSquare] & pieces[code(sideToMove, PAWN)]) != 0) {
+            return Zobrist.EN_PASSANT_FILE[enPassantSquare & 7];
+        }
+        return 0L;
+    }
+
+    /** Material plus piece-square score for the midgame, from White's point of view. Maintained like the key. */
+    public int midgameScore() {
+        return midgame;
+    }
+
+    /** Material plus piece-square score for the endgame, from White's point of view. */
+    public int endgameScore() {
+        return endgame;
+    }
+
+    /** Game phase from the pieces left, {@link PieceSquareTables#MAX_PHASE} at the start; more after promotions. */
+    public int phase() {
+        return phase;
+    }
+
+    public static String squareName(int sq) {
+        return "" + (char) ('a' + (sq & 7)) + (8 - (sq >>> 3));
+    }
+
+    public static int parseSquare(String name) {
+        int col = name.charAt(0) - 'a';
+        int row = '8' - name.charAt(1);
+        if (col < 0 || col > 7 || row < 0 || row > 7) throw new IllegalArgumentException("Invalid square: " + name);
+        return row * 8 + col;
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[code(color, type)];
+    }
+
+    public long occupancy(int color) {
+        return colors[color];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public int pieceAt(int sq) {
+        return squares[sq];
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    public int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /** Square of the king of the given color, or -1 if it has none. Tracked on make and unmake. */
+    public int kingSquare(int color) {
+        return kingSquares[color];
+    }
+
+    public boolean isInCheck(int color) {
+        int king = kingSquares[color];
+        return king >= 0 && isSquareAttacked(king, color ^ 1);
+    }
+
+    public boolean isSquareAttacked(int sq, int byColor) {
+        return isSquareAttacked(sq, byColor, occupied);
+    }
+
+    /** Attack probe with sliders seen through the given occupancy instead of the current one. */
+    public boolean isSquareAttacked(int sq, int byColor, long occupied) {
+        int base = byColor * 6;
+        if ((Bitboards.PAWN_ATTACKS[byColor ^ 1][sq] & pieces[base + PAWN]) != 0) return true;
+        if ((Bitboards.KNIGHT_ATTACKS[sq] & pieces[base + KNIGHT]) != 0) return true;
+        if ((Bitboards.KING_ATTACKS[sq] & pieces[base + KING]) != 0) return true;
+        long queens = pieces[base + QUEEN];
+        if ((Bitboards.bishopAttacks(sq, occupied) & (pieces[base + BISHOP] | queens)) != 0) return true;
+        return (Bitboards.rookAttacks(sq, occupied) & (pieces[base + ROOK] | queens)) != 0;
+    }
+
+    /** Pieces of both colors attacking a square, with sliders seen through the given occupancy. */
+    public long attackersTo(int sq, long occupied) {
+        long rooks = pieces[code(WHITE, ROOK)] | pieces[code(BLACK, ROOK)]
+                | pieces[code(WHITE, QUEEN)] | pieces[code(BLACK, QUEEN)];
+        long bishops = pieces[code(WHITE, BISHOP)] | pieces[code(BLACK, BISHOP)]
+                | pieces[code(WHITE, QUEEN)] | pieces[code(BLACK, QUEEN)];
+        return (Bitboards.PAWN_ATTACKS[BLACK][sq] & pieces[code(WHITE, PAWN)])
+                | (Bitboards.PAWN_ATTACKS[WHITE][sq] & pieces[code(BLACK, PAWN)])
+                | (Bitboards.KNIGHT_ATTACKS[sq] & (pieces[code(WHITE, KNIGHT)] | pieces[code(BLACK, KNIGHT)]))
+                | (Bitboards.KING_ATTACKS[sq] & (pieces[code(WHITE, KING)] | pieces[code(BLACK, KING)]))
+                | (Bitboards.bishopAttacks(sq, occupied) & bishops)
+                | (Bitboards.rookAttacks(sq, occupied) & rooks);
+    }
+
+    /** Swaps the piece on a square in place, outside of the make/unmake history. */
+    public void replacePiece(int sq, int code) {
+        remove(squares[sq], sq);
+        put(code, sq);
+        findKings();
+    }
+
+    public void make(int move) {
+        if (ply == undoMove.length) growHistory();
+        int from = PackedMove.from(move), to = PackedMove.to(move);
+        int flag = PackedMove.flag(move), promotion = PackedMove.promotionType(move);
+        int us = sideToMove;
+        int moved = squares[from];
+        int captured = squares[to];
+
+        undoMove[ply] = move;
+        undoMoved[ply] = moved;
+        undoState[ply] = castlingRights | ((enPassantSquare + 1) << 4) | (halfmoveClock << 11);
+        undoKey[ply] = key;
+        key ^= Zobrist.CASTLING[castlingRights] ^ enPassantKey();
+
+        if (flag == PackedMove.EN_PASSANT) {
+            int capturedSq = to + (us == WHITE ? 8 : -8);
+            captured = squares[capturedSq];
+            remove(captured, capturedSq);
+        } else if (captured != EMPTY) {
+            remove(captured, to);
+        }
+        undoCaptured[ply] = captured;
+        ply++;
+
+        remove(moved, from);
+        put(promotion != 0 ? code(us, promotion) : moved, to);
+        if (typeOf(moved) == KING) kingSquares[us] = to;
+
+        if (flag == PackedMove.CASTLE) {
+            if (to > from) {
+                movePiece(from + 3, from + 1);
+            } else {
+                movePiece(from - 4, from - 1);
+            }
+        }
+
+        enPassantSquare = flag == PackedMove.DOUBLE_PUSH ? (from + to) >>> 1 : -1;
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        halfmoveClock = (typeOf(moved) == PAWN || captured != EMPTY) ? 0 : halfmoveClock + 1;
+        if (us == BLACK) fullmoveNumber++;
+        sideToMove = us ^ 1;
+        key ^= Zobrist.CASTLING[castlingRights] ^ enPassantKey() ^ Zobrist.SIDE_TO_MOVE;
+    }
+
+    public void unmake() {
+        ply--;
+        int move = undoMove[ply];
+        int from = PackedMove.from(move), to = PackedMove.to(move);
+        int flag = PackedMove.flag(move);
+        int captured = undoCaptured[ply];
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) fullmoveNumber--;
+
+        int moved = undoMoved[ply];
+        remove(squares[to], to);
+        put(moved, from);
+        if (typeOf(moved) == KING) kingSquares[sideToMove] = from;
+
+        if (flag == PackedMove.CASTLE) {
+            if (to > from) {
+                movePiece(from + 1, from + 3);
+            } else {
+                movePiece(from - 1, from - 4);
+            }
+        }
+        if (captured != EMPTY) {
+            put(captured, flag == PackedMove.EN_PASSANT ? to + (sideToMove == WHITE ? 8 : -8) : to);
+        }
+
+        int state = undoState[ply];
+        castlingRights = state & 15;
+        enPassantSquare = ((state >>> 4) & 127) - 1;
+        halfmoveClock = state >>> 11;
+        key = undoKey[ply];
+    }
+
+    /** True if the current position occurred before since the last capture or pawn move. */
+    public boolean isRepetition() {
+        int oldest = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 4; i >= oldest; i -= 2) {
+            if (undoKey[i] == key) return true;
+        }
+        return false;
+    }
+
+    /** How many times the current position occurred before since the last capture or pawn move. */
+    public int repetitions() {
+        int count = 0;
+        int oldest = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 4; i >= oldest; i -= 2) {
+            if (undoKey[i] == key) count++;
+        }
+        return count;
+    }
+
+    /** The last move made, or {@link PackedMove#NONE} at the start of the history. */
+    public int lastMove() {
+        return ply == 0 ? PackedMove.NONE : undoMove[ply - 1];
+    }
+
+    /** Piece code captured by the last move made, or {@link #EMPTY}. */
+    public int lastCaptured() {
+        return ply == 0 ? EMPTY : undoCaptured[ply - 1];
+    }
+
+    private void findKings() {
+        for (int color = WHITE; color <= BLACK; color++) {
+            long king = pieces[code(color, KING)];
+            kingSquares[color] = king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+        }
+    }
+
+    private void movePiece(int from, int to) {
+        int code = squares[from];
+        remove(code, from);
+        put(code, to);
+    }
+
+    private void put(int code, int sq) {
+        long b = 1L << sq;
+        pieces[code] |= b;
+        colors[colorOf(code)] |= b;
+        occupied |= b;
+        squares[sq] = code;
+        key ^= Zobrist.PIECE_SQUARE[code][sq];
+        if (typeOf(code) == PAWN) pawnKey ^= Zobrist.PIECE_SQUARE[code][sq];
+        midgame += PieceSquareTables.MIDGAME[code][sq];
+        endgame += PieceSquareTables.ENDGAME[code][sq];
+        phase += PieceSquareTables.phaseWeight(code);
+    }
+
+    private void remove(int code, int sq) {
+        long b = ~(1L << sq);
+        pieces[code] &= b;
+        colors[colorOf(code)] &= b;
+        occupied &= b;
+        squares[sq] = EMPTY;
+        key ^= Zobrist.PIECE_SQUARE[code][sq];
+        if (typeOf(code) == PAWN) pawnKey ^= Zobrist.PIECE_SQUARE[code][sq];
+        midgame -= PieceSquareTables.MIDGAME[code][sq];
+        endgame -= PieceSquareTables.ENDGAME[code][sq];
+        phase -= PieceSquareTables.phaseWeight(code);
+    }
+
+    private void growHistory() {
+        int size = undoMove.length * 2;
+        undoMove = Arrays.copyOf(undoMove, size);
+        undoMoved = Arrays.copyOf(undoMoved, size);
+        undoCaptured = Arrays.copyOf(undoCaptured, size);
+        undoState = Arrays.copyOf(undoState, size);
+        undoKey = Arrays.copyOf(undoKey, size);
+    }
+}
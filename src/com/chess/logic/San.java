@@ -0,0 +1,202 @@
+package com.chess.logic;
+
+/**
+ * Standard algebraic notation as used in PGN movetext, e.g. {@code Nbd7}, {@code exd5},
+ * {@code e8=Q+} or {@code O-O}. Moves are resolved against the legal moves of a position,
+ * so check and annotation suffixes are accepted but not verified when reading. Writing
+ * appends characters to a caller's builder and creates no strings of its own.
+ */
+public final class San {
+    // Legal moves generated while writing, for disambiguation and to tell mate from check; one
+    // buffer per writing thread.
+    private static final ThreadLocal<MoveList> SCRATCH = ThreadLocal.withInitial(MoveList::new);
+    private static final ThreadLocal<int[]> REPLIES = ThreadLocal.withInitial(() -> new int[MoveGenerator.MAX_MOVES]);
+
+    private San() {
+    }
+
+    /** The move in SAN, with a {@code +} or {@code #} suffix. */
+    public static String format(Position pos, int move) {
+        StringBuilder out = new StringBuilder(8);
+        append(pos, move, null, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends a legal move in SAN, disambiguated against {@code legal}, the legal moves of the
+     * position if the caller already has them, or null to have them generated when another
+     * piece could also reach the target. The move is made and taken back to find check and mate,
+     * so the position is left as it was.
+     */
+    public static void append(Position pos, int move, MoveList legal, StringBuilder out) {
+        int from = PackedMove.from(move), to = PackedMove.to(move);
+        int type = Position.typeOf(pos.pieceAt(from));
+        if (PackedMove.flag(move) == PackedMove.CASTLE) {
+            out.append(to > from ? "O-O" : "O-O-O");
+        } else {
+            boolean capture = pos.pieceAt(to) != Position.EMPTY || PackedMove.flag(move) == PackedMove.EN_PASSANT;
+            if (type == Position.PAWN) {
+                if (capture) out.append(file(from));
+            } else {
+                out.append(letter(type));
+                if (type != Position.KING) disambiguate(pos, move, legal, out);
+            }
+            if (capture) out.append('x');
+            out.append(file(to)).append(rank(to));
+            int promotion = PackedMove.promotionType(move);
+            if (promotion != 0) out.append('=').append(letter(promotion));
+        }
+
+        pos.make(move);
+        if (pos.isInCheck(pos.sideToMove())) {
+            out.append(MoveGenerator.generateLegal(pos, REPLIES.get()) == 0 ? '#' : '+');
+        }
+        pos.unmake();
+    }
+
+    // File, rank or both of the origin, as far as needed to tell the move from the same piece
+    // type's other moves to the same square.
+    private static void disambiguate(Position pos, int move, MoveList legal, StringBuilder out) {
+        int from = PackedMove.from(move), to = PackedMove.to(move);
+        int piece = pos.pieceAt(from);
+        long occupied = pos.occupied();
+        long reach = switch (Position.typeOf(piece)) {
+            case Position.KNIGHT -> Bitboards.KNIGHT_ATTACKS[to];
+            case Position.BISHOP -> Bitboards.bishopAttacks(to, occupied);
+            case Position.ROOK -> Bitboards.rookAttacks(to, occupied);
+            default -> Bitboards.queenAttacks(to, occupied);
+        };
+        // Most moves have no rival at all, and those need no move list.
+        if ((reach & pos.pieces(Position.colorOf(piece), Position.typeOf(piece)) & ~Bitboards.bit(from)) == 0) return;
+        if (legal == null) {
+            legal = SCRATCH.get();
+            MoveGenerator.generateLegal(pos, legal);
+        }
+        boolean ambiguous = false, sameFile = false, sameRank = false;
+        for (int i = 0; i < legal.size(); i++) {
+            int other = legal.get(i);
+            int otherFrom = PackedMove.from(other);
+            if (PackedMove.to(other) != to || otherFrom == from || pos.pieceAt(otherFrom) != piece) continue;
+            ambiguous = true;
+            sameFile |= (otherFrom & 7) == (from & 7);
+            sameRank |= (otherFrom >>> 3) == (from >>> 3);
+        }
+        if (!ambiguous) return;
+        if (!sameFile) {
+            out.append(file(from));
+        } else if (!sameRank) {
+            out.append(rank(from));
+        } else {
+            out.append(file(from)).append(rank(from));
+        }
+    }
+
+    private static char file(int sq) {
+        return (char) ('a' + (sq & 7));
+    }
+
+    private static char rank(int sq) {
+        return (char) ('8' - (sq >>> 3));
+    }
+
+    private static char letter(int type) {
+        return switch (type) {
+            case Position.KNIGHT -> 'N';
+            case Position.BISHOP -> 'B';
+            case Position.ROOK -> 'R';
+            case Position.QUEEN -> 'Q';
+            case Position.KING -> 'K';
+            default -> 'P';
+        };
+    }
+
+    /** The legal move the text describes, or {@link PackedMove#NONE} if there is none or it is ambiguous. */
+    public static int parse(Position pos, String san) {
+        String text = stripSuffixes(san);
+        if (text.isEmpty()) return PackedMove.NONE;
+
+        MoveList legal = new MoveList();
+        MoveGenerator.generateLegal(pos, legal);
+        if (text.equals("O-O") || text.equals("0-0") || text.equals("O-O-O") || text.equals("0-0-0")) {
+            boolean kingside = text.length() == 3;
+            for (int i = 0; i < legal.size(); i++) {
+                int move = legal.get(i);
+                if (PackedMove.flag(move) == PackedMove.CASTLE
+                        && (PackedMove.to(move) > PackedMove.from(move)) == kingside) {
+                    return move;
+                }
+            }
+            return PackedMove.NONE;
+        }
+
+        int promotion = 0;
+        int equals = text.indexOf('=');
+        if (equals >= 0) {
+            if (equals + 1 >= text.length()) return PackedMove.NONE;
+            promotion = pieceType(text.charAt(equals + 1));
+            text = text.substring(0, equals);
+        } else if (text.length() > 2 && pieceType(text.charAt(text.length() - 1)) > Position.PAWN) {
+            promotion = pieceType(text.charAt(text.length() - 1)); // e8Q
+            text = text.substring(0, text.length() - 1);
+        }
+        if (promotion < 0 || text.length() < 2) return PackedMove.NONE;
+
+        int type = Position.PAWN;
+        int start = 0;
+        if (Character.isUpperCase(text.charAt(0))) {
+            type = pieceType(text.charAt(0));
+            if (type <= Position.PAWN) return PackedMove.NONE;
+            start = 1;
+        }
+        int to;
+        try {
+            to = Position.parseSquare(text.substring(text.length() - 2));
+        } catch (IllegalArgumentException e) {
+            return PackedMove.NONE;
+        }
+
+        // Whatever is left between the piece letter and the target narrows down the origin.
+        int fromFile = -1, fromRank = -1;
+        for (int i = start; i < text.length() - 2; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') fromFile = c - 'a';
+            else if (c >= '1' && c <= '8') fromRank = '8' - c;
+            else if (c != 'x' && c != '-' && c != ':') return PackedMove.NONE;
+        }
+
+        int found = PackedMove.NONE;
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            int from = PackedMove.from(move);
+            if (PackedMove.to(move) != to || Position.typeOf(pos.pieceAt(from)) != type
+                    || PackedMove.promotionType(move) != promotion
+                    || (fromFile >= 0 && (from & 7) != fromFile) || (fromRank >= 0 && (from >>> 3) != fromRank)) {
+                continue;
+            }
+            if (found != PackedMove.NONE) return PackedMove.NONE;
+            found = move;
+        }
+        return found;
+    }
+
+    private static String stripSuffixes(String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return san.substring(0, end).trim();
+    }
+
+    // Piece letter to piece type; -1 for anything else.
+    private static int pieceType(char letter) {
+        return switch (letter) {
+            case 'P' -> Position.PAWN;
+            case 'N' -> Position.KNIGHT;
+            case 'B' -> Position.BISHOP;
+            case 'R' -> Position.ROOK;
+            case 'Q' -> Position.QUEEN;
+            case 'K' -> Position.KING;
+            default -> -1;
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.chess.logic;
+
+/**
+ * Random keys for Zobrist position hashing. Keys are derived from a fixed sequence so
+ * that hashes are stable across runs and can be persisted.
+ */
+public final class Zobrist {
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT_FILE = new long[8];
+    static final long SIDE_TO_MOVE;
+
+    static {
+        int index = 0;
+        for (long[] squares : PIECE_SQUARE) {
+            for (int sq = 0; sq < 64; sq++) {
+                squares[sq] = key(index++);
+            }
+        }
+        for (int i = 0; i < CASTLING.length; i++) {
+            CASTLING[i] = key(index++);
+        }
+        for (int i = 0; i < EN_PASSANT_FILE.length; i++) {
+            EN_PASSANT_FILE[i] = key(index++);
+        }
+        SIDE_TO_MOVE = key(index);
+    }
+
+    private Zobrist() {
+    }
+
+    // SplitMix64 output for the index-th step of the sequence.
+    private static long key(int index) {
+        long z = (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
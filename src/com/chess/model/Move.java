@@ -1,4 +1,8 @@
 package com.chess.model;
 
-public record Move(int startRow, int startCol, int endRow, int endCol) {
+/** A move between two squares; promotion is the piece a pawn becomes, or null for any other move. */
+public record Move(int startRow, int startCol, int endRow, int endCol, PieceType promotion) {
+    public Move(int startRow, int startCol, int endRow, int endCol) {
+        this(startRow, startCol, endRow, endCol, null);
+    }
 }
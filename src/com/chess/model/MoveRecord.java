@@ -1,4 +1,8 @@
 package com.chess.model;
 
 public record MoveRecord(Move move, Piece capturedPiece, String pgn) {
+    /** The move in SAN without the move number White's moves are written with, e.g. "Nbd2+". */
+    public String san() {
+        return pgn.substring(pgn.indexOf(' ') + 1);
+    }
 }
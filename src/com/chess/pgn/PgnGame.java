@@ -0,0 +1,31 @@
+package com.chess.pgn;
+
+import com.chess.logic.Position;
+import java.util.Map;
+
+/**
+ * One game read by a {@link PgnReader}: its tags in file order and the moves of its main line
+ * as {@link com.chess.logic.PackedMove}s, played from the start position or the one in its
+ * FEN tag. A game is incomplete when reading stopped at a move that is not legal or cannot be
+ * resolved; the moves before it are kept.
+ */
+public record PgnGame(Map<String, String> tags, int[] moves, boolean complete) {
+    /** The value of a tag, or null if the game has none. */
+    public String tag(String name) {
+        return tags.get(name);
+    }
+
+    /** "1-0", "0-1", "1/2-1/2" or "*". */
+    public String result() {
+        return tags.getOrDefault("Result", "*");
+    }
+
+    public String startFen() {
+        return tags.getOrDefault("FEN", Position.START_FEN);
+    }
+
+    /** A fresh position to replay the moves on. */
+    public Position startPosition() {
+        return Position.fromFen(startFen());
+    }
+}
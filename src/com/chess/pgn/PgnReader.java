@@ -0,0 +1,378 @@
+package com.chess.pgn;
+
+import com.chess.logic.PackedMove;
+import com.chess.logic.Position;
+import com.chess.logic.San;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams the games of a PGN file, of any size, in file order. The file is read through a
+ * {@link FileChannel} into one direct buffer and cut into game texts on the calling thread;
+ * resolving their moves against the move generator, which is most of the work, can run on
+ * worker threads. Memory stays bounded by the few batches of games in flight.
+ * <p>
+ * Files are read as ISO-8859-1, so tag values outside ASCII may come out garbled; movetext
+ * is ASCII. A line starting with {@code [} after movetext starts the next game.
+ */
+public final class PgnReader implements Iterator<PgnGame>, AutoCloseable {
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int BATCH_GAMES = 256;
+    // A game text longer than this is not a game; it is skipped to keep memory bounded.
+    private static final int MAX_GAME_BYTES = 1 << 22;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final int maxPlies;
+    private final ExecutorService workers;
+    private final int maxInFlight;
+    private final ArrayDeque<Future<List<PgnGame>>> inFlight = new ArrayDeque<>();
+    private Iterator<PgnGame> batch = Collections.emptyIterator();
+    private long bytesRead;
+    private boolean endOfFile;
+
+    // Text of the game being cut, and where its last line starts.
+    private byte[] text = new byte[1 << 16];
+    private int length;
+    private int lineStart;
+    private boolean content;
+    private boolean movetext;
+    private boolean oversized;
+    // Whether the scan is inside a {...} comment, which may span lines, or after a ; on this line.
+    private boolean inComment;
+    private boolean commentAtLineStart;
+    private boolean restOfLine;
+
+    public PgnReader(Path path) throws IOException {
+        this(path, 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param threads threads resolving moves; with 1 everything happens on the calling thread
+     * @param maxPlies moves after this many plies of a game are not read
+     */
+    public PgnReader(Path path, int threads, int maxPlies) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("A reader needs at least one thread");
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.maxPlies = maxPlies;
+        this.maxInFlight = 2 * threads;
+        this.workers = threads == 1 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pgn-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        buffer.flip();
+    }
+
+    /** Bytes of the file read so far. */
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!batch.hasNext()) {
+            fill();
+            Future<List<PgnGame>> next = inFlight.poll();
+            if (next == null) return false;
+            batch = await(next).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public PgnGame next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return batch.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (workers != null) workers.shutdownNow();
+        channel.close();
+    }
+
+    private void fill() {
+        while (inFlight.size() < maxInFlight && !endOfFile) {
+            List<String> texts = new ArrayList<>(BATCH_GAMES);
+            try {
+                while (texts.size() < BATCH_GAMES && !endOfFile) {
+                    String game = nextGameText();
+                    if (game != null) texts.add(game);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (texts.isEmpty()) break;
+            if (workers == null) {
+                inFlight.add(CompletableFuture.completedFuture(parseAll(texts)));
+            } else {
+                inFlight.add(workers.submit(() -> parseAll(texts)));
+            }
+        }
+    }
+
+    private static List<PgnGame> await(Future<List<PgnGame>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading games", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Reading a game failed", e.getCause());
+        }
+    }
+
+    private List<PgnGame> parseAll(List<String> texts) {
+        List<PgnGame> games = new ArrayList<>(texts.size());
+        for (String game : texts) {
+            games.add(parse(game, maxPlies));
+        }
+        return games;
+    }
+
+    // Returns the next game text, or null when the bytes read so far hold none yet.
+    private String nextGameText() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) {
+                // The last line may lack its line break.
+                if (lineStart < length) {
+                    append((byte) '\n');
+                    String game = endLine();
+                    if (game != null) return game;
+                }
+                endOfFile = true;
+                return content ? take(length) : null;
+            }
+            bytesRead += read;
+        }
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            append(b);
+            if (b == '\n') {
+                String game = endLine();
+                if (game != null) return game;
+            } else if (inComment) {
+                inComment = b != '}';
+            } else if (!restOfLine) {
+                inComment = b == '{';
+                restOfLine = b == ';';
+            }
+        }
+        return null;
+    }
+
+    private void append(byte b) {
+        if (length == text.length) {
+            if (length >= MAX_GAME_BYTES) {
+                // Too long for a game: drop it, but keep its last line to see where the next one starts.
+                oversized = true;
+                int keep = lineStart == 0 ? 0 : length - lineStart;
+                System.arraycopy(text, lineStart, text, 0, keep);
+                length = keep;
+                lineStart = 0;
+            } else {
+                text = Arrays.copyOf(text, length * 2);
+            }
+        }
+        text[length++] = b;
+    }
+
+    // Looks at the line just completed; a tag line after movetext ends the game before it,
+    // unless it is part of a comment.
+    private String endLine() {
+        int i = lineStart;
+        while (i < length && (text[i] == ' ' || text[i] == '\t' || text[i] == '\r' || text[i] == '\n')) {
+            i++;
+        }
+        String game = null;
+        if (i < length) {
+            if (text[i] == '[' && !commentAtLineStart) {
+                if (movetext) {
+                    game = take(lineStart);
+                    movetext = false;
+                }
+                // Braces in a tag value open no comment.
+                inComment = false;
+            } else if (text[i] != '%') {
+                movetext = true;
+            }
+            content = true;
+        }
+        commentAtLineStart = inComment;
+        restOfLine = false;
+        lineStart = length;
+        return game;
+    }
+
+    // Cuts the first end bytes off as a game, keeping what follows them.
+    private String take(int end) {
+        String game = oversized || end == 0 ? null : new String(text, 0, end, StandardCharsets.ISO_8859_1);
+        oversized = false;
+        content = false;
+        System.arraycopy(text, end, text, 0, length - end);
+        length -= end;
+        lineStart -= end;
+        return game;
+    }
+
+    /** Reads one game's text: its tags, then the moves of its main line up to {@code maxPlies}. */
+    public static PgnGame parse(String game, int maxPlies) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        int movetextStart = 0;
+        int i = 0;
+        while (i < game.length()) {
+            char c = game.charAt(i);
+            if (c == '[') {
+                int end = game.indexOf('\n', i);
+                if (end < 0) end = game.length();
+                addTag(tags, game, i + 1, end);
+                i = end;
+            } else if (!Character.isWhitespace(c)) {
+                movetextStart = i;
+                break;
+            } else {
+                i++;
+            }
+            movetextStart = i;
+        }
+
+        Position pos;
+        try {
+            pos = Position.fromFen(tags.getOrDefault("FEN", Position.START_FEN));
+        } catch (IllegalArgumentException e) {
+            return new PgnGame(tags, new int[0], false);
+        }
+        List<String> tokens = movetext(game, movetextStart);
+        int[] moves = new int[Math.min(tokens.size(), maxPlies)];
+        int plies = 0;
+        for (String token : tokens) {
+            if (plies == moves.length) break;
+            int move = San.parse(pos, token);
+            if (move == PackedMove.NONE) return new PgnGame(tags, Arrays.copyOf(moves, plies), false);
+            pos.make(move);
+            moves[plies++] = move;
+        }
+        return new PgnGame(tags, moves, true);
+    }
+
+    // [Name "value"], where the value may hold \" and \\ escapes.
+    private static void addTag(Map<String, String> tags, String line, int start, int end) {
+        int quote = line.indexOf('"', start);
+        if (quote < 0 || quote >= end) return;
+        String name = line.substring(start, quote).trim();
+        StringBuilder value = new StringBuilder();
+        for (int i = quote + 1; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                value.append(line.charAt(++i));
+            } else if (c == '"') {
+                break;
+            } else {
+                value.append(c);
+            }
+        }
+        if (!name.isEmpty()) tags.put(name, value.toString());
+    }
+
+    // SAN tokens of the main line: comments, variations, move numbers, NAGs and results dropped.
+    private static List<String> movetext(String text, int start) {
+        List<String> tokens = new ArrayList<>();
+        int depth = 0;
+        int tokenStart = -1;
+        for (int i = start; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (c == '{' || c == '(' || c == ')' || c == ';' || Character.isWhitespace(c)) {
+                if (tokenStart >= 0 && depth == 0) addToken(tokens, text, tokenStart, i);
+                tokenStart = -1;
+                if (c == '{') {
+                    int close = text.indexOf('}', i);
+                    i = close < 0 ? text.length() : close;
+                } else if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth = Math.max(0, depth - 1);
+                } else if (c == ';') {
+                    int lineEnd = text.indexOf('\n', i);
+                    i = lineEnd < 0 ? text.length() : lineEnd;
+                }
+            } else if (tokenStart < 0) {
+                tokenStart = i;
+            }
+        }
+        return tokens;
+    }
+
+    private static void addToken(List<String> tokens, String text, int start, int end) {
+        // "12." or "12..." may be glued to the move that follows it.
+        int move = start;
+        while (move < end && (Character.isDigit(text.charAt(move)) || text.charAt(move) == '.')) {
+            move++;
+        }
+        if (move > start && move < end && text.charAt(move - 1) != '.') move = start; // e.g. "1-0"
+        if (move == end || text.charAt(move) == '$' || text.charAt(move) == '*') return;
+        String token = text.substring(move, end);
+        if (token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2")) return;
+        tokens.add(token);
+    }
+
+    /**
+     * Usage: {@code PgnReader games.pgn... [-threads n]}. Reads every game and prints how many
+     * there were, how many stopped at a move that could not be read, and the throughput.
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads" -> threads = Integer.parseInt(args[++i]);
+                default -> inputs.add(Path.of(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: PgnReader games.pgn... [-threads n]");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        long games = 0, incomplete = 0, plies = 0, bytes = 0;
+        for (Path input : inputs) {
+            try (PgnReader reader = new PgnReader(input, threads, Integer.MAX_VALUE)) {
+                while (reader.hasNext()) {
+                    PgnGame game = reader.next();
+                    games++;
+                    plies += game.moves().length;
+                    if (!game.complete()) incomplete++;
+                }
+                bytes += reader.bytesRead();
+            }
+        }
+        double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+        System.out.println("Games: " + games + " (" + incomplete + " incomplete)");
+        System.out.println("Plies: " + plies);
+        System.out.printf("Time: %.0f ms, %.0f games/s, %.1f MB/s with %d threads%n",
+                seconds * 1000, games / seconds, bytes / seconds / (1 << 20), threads);
+    }
+}
@@ -0,0 +1,128 @@
+package com.chess.pgn;
+
+import com.chess.logic.Position;
+import com.chess.logic.San;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games in export format: the seven tag roster first, with {@code ?} for missing
+ * values, then any other tags, then SAN movetext with move numbers, wrapped before 80
+ * columns and ended by the result. Everything is appended to one builder, which a writer
+ * reuses from game to game, so formatting makes no garbage beyond the builder's growth.
+ */
+public final class PgnWriter {
+    private static final int MAX_LINE = 79;
+    private static final String[] ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+
+    private PgnWriter() {
+    }
+
+    /** Appends the game, followed by a blank line. */
+    public static void append(PgnGame game, StringBuilder out) {
+        Map<String, String> tags = game.tags();
+        for (String name : ROSTER) {
+            String value = name.equals("Result") ? game.result() : tags.get(name);
+            appendTag(out, name, value == null ? "?" : value);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!isRoster(tag.getKey())) appendTag(out, tag.getKey(), tag.getValue());
+        }
+        out.append('\n');
+
+        Position pos = game.startPosition();
+        int lineStart = out.length();
+        for (int i = 0; i < game.moves().length; i++) {
+            int move = game.moves()[i];
+            int tokenStart = out.length();
+            if (tokenStart > lineStart) out.append(' ');
+            if (pos.sideToMove() == Position.WHITE) {
+                out.append(pos.fullmoveNumber()).append(". ");
+            } else if (i == 0) {
+                out.append(pos.fullmoveNumber()).append("... ");
+            }
+            San.append(pos, move, null, out);
+            lineStart = wrap(out, tokenStart, lineStart);
+            pos.make(move);
+        }
+        int tokenStart = out.length();
+        if (tokenStart > lineStart) out.append(' ');
+        out.append(game.result());
+        wrap(out, tokenStart, lineStart);
+        out.append("\n\n");
+    }
+
+    // Breaks the line at the space before the token just written if it ran past the limit;
+    // returns where the current line starts.
+    private static int wrap(StringBuilder out, int tokenStart, int lineStart) {
+        if (out.length() - lineStart <= MAX_LINE || tokenStart == lineStart) return lineStart;
+        out.setCharAt(tokenStart, '\n');
+        return tokenStart + 1;
+    }
+
+    private static void appendTag(StringBuilder out, String name, String value) {
+        out.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') out.append('\\');
+            out.append(c);
+        }
+        out.append("\"]\n");
+    }
+
+    private static boolean isRoster(String name) {
+        for (String roster : ROSTER) {
+            if (roster.equals(name)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Usage: {@code PgnWriter in.pgn... out.pgn [-threads n]}. Reads the games and writes them
+     * back in export format, printing the throughput and the share of it spent formatting.
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads" -> threads = Integer.parseInt(args[++i]);
+                default -> paths.add(Path.of(args[i]));
+            }
+        }
+        if (paths.size() < 2) {
+            System.err.println("Usage: PgnWriter in.pgn... out.pgn [-threads n]");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        long formatting = 0, games = 0, plies = 0;
+        StringBuilder text = new StringBuilder(1 << 12);
+        try (Writer out = Files.newBufferedWriter(paths.get(paths.size() - 1), StandardCharsets.ISO_8859_1)) {
+            for (Path input : paths.subList(0, paths.size() - 1)) {
+                try (PgnReader reader = new PgnReader(input, threads, Integer.MAX_VALUE)) {
+                    while (reader.hasNext()) {
+                        PgnGame game = reader.next();
+                        long formatStart = System.nanoTime();
+                        text.setLength(0);
+                        append(game, text);
+                        formatting += System.nanoTime() - formatStart;
+                        out.append(text);
+                        games++;
+                        plies += game.moves().length;
+                    }
+                }
+            }
+        }
+        double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+        System.out.println("Games: " + games);
+        System.out.printf("Time: %.0f ms, %.0f games/s; formatting %.0f ms, %.0f plies/s%n",
+                seconds * 1000, games / seconds, formatting / 1e6, plies / Math.max(1e-9, formatting / 1e9));
+    }
+}
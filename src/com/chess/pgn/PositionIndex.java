@@ -0,0 +1,356 @@
+package com.chess.pgn;
+
+import com.chess.logic.PackedMove;
+import com.chess.logic.Position;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only index of the positions reached in a game archive, answering which games reached
+ * a position, and at which ply, without reading the archive. The game screen looks up every
+ * board it shows by {@link com.chess.logic.GameLogic#getPositionKey()} in the index found by
+ * {@link #configured()}, and lists the hits beside the board. Keys are 64-bit Zobrist
+ * keys, so a hit may in principle come from a different position with the same key.
+ * <p>
+ * The index is a directory written by {@link PositionIndexBuilder}: the games themselves in
+ * {@value #GAMES_FILE} with their offsets in {@value #OFFSETS_FILE}, and any number of
+ * segment files, each covering a contiguous range of game ids. All files are memory-mapped
+ * except the game data, which is read by position, so a lookup only touches a few pages of
+ * each segment however large the archive is.
+ * <p>
+ * Segment layout, big-endian: a 32-byte header holding {@link #SEGMENT_MAGIC}, a format
+ * version, the entry count, the merge level and the first and end game id; then 16-byte
+ * entries of key (long), game id (int) and ply (int), sorted by signed key and then by game
+ * and ply; then, as a sparse index, the key of every {@value #FENCE_INTERVAL}th entry.
+ */
+public final class PositionIndex implements AutoCloseable {
+    public static final int SEGMENT_MAGIC = 0x43505331; // "CPS1"
+    public static final int GAMES_MAGIC = 0x43504731; // "CPG1"
+    public static final int OFFSETS_MAGIC = 0x43504F31; // "CPO1"
+    public static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int ENTRY_BYTES = 16;
+    static final int FENCE_INTERVAL = 512;
+    /** Most entries in one segment, so that it can be mapped as a whole, fences included. */
+    static final long MAX_SEGMENT_ENTRIES = (Integer.MAX_VALUE - HEADER_BYTES) / (ENTRY_BYTES + 1);
+    static final String GAMES_FILE = "games.dat";
+    static final String OFFSETS_FILE = "games.idx";
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    /** System property holding the directory of the index the game screen looks boards up in. */
+    public static final String PATH_PROPERTY = "chess.positions";
+    public static final String DEFAULT_PATH = "positions";
+    private static final System.Logger LOG = System.getLogger(PositionIndex.class.getName());
+
+    /** A game that reached the position, and the ply after which it did; 0 is its start. */
+    public record Hit(int game, int ply) {
+    }
+
+    /** One mapped segment. */
+    static final class Segment {
+        final Path path;
+        final int level, firstGame, endGame;
+        final long count;
+        final MappedByteBuffer buffer;
+        private final int fences;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+            count = buffer.getLong(8);
+            level = buffer.getInt(16);
+            firstGame = buffer.getInt(20);
+            endGame = buffer.getInt(24);
+            fences = fences(count);
+        }
+
+        static Segment open(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < HEADER_BYTES || size > Integer.MAX_VALUE) throw new IOException("Not an index segment: " + path);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (buffer.getInt(0) != SEGMENT_MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException("Not an index segment: " + path);
+                }
+                long count = buffer.getLong(8);
+                if (count < 0 || count > MAX_SEGMENT_ENTRIES || size != bytes(count)) {
+                    throw new IOException("Truncated index segment: " + path);
+                }
+                if (buffer.getInt(20) < 0 || buffer.getInt(24) <= buffer.getInt(20)) {
+                    throw new IOException("Not an index segment: " + path);
+                }
+                return new Segment(path, buffer);
+            }
+        }
+
+        static int fences(long count) {
+            return (int) ((count + FENCE_INTERVAL - 1) / FENCE_INTERVAL);
+        }
+
+        static long bytes(long count) {
+            return HEADER_BYTES + count * ENTRY_BYTES + fences(count) * 8L;
+        }
+
+        long key(int index) {
+            return buffer.getLong(HEADER_BYTES + index * ENTRY_BYTES);
+        }
+
+        int game(int index) {
+            return buffer.getInt(HEADER_BYTES + index * ENTRY_BYTES + 8);
+        }
+
+        int ply(int index) {
+            return buffer.getInt(HEADER_BYTES + index * ENTRY_BYTES + 12);
+        }
+
+        /**
+         * Index of the first entry whose key is above the given one, or, unless {@code after},
+         * not below it. The fences narrow the search to one block first, so a cold lookup
+         * faults in the fence pages it needs and then a single block.
+         */
+        int bound(long key, boolean after) {
+            int fenceStart = HEADER_BYTES + (int) count * ENTRY_BYTES;
+            int low = 0, high = fences;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (before(buffer.getLong(fenceStart + mid * 8), key, after)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            // Fence low - 1 is before the bound and fence low is not, so it lies in the block between.
+            if (low == 0) return 0;
+            int block = low - 1;
+            low = block * FENCE_INTERVAL + 1;
+            high = (int) Math.min(count, (long) (block + 1) * FENCE_INTERVAL);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (before(key(mid), key, after)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static boolean before(long entry, long key, boolean after) {
+            return after ? entry <= key : entry < key;
+        }
+    }
+
+    private final List<Segment> segments;
+    private final MappedByteBuffer offsets;
+    private final FileChannel games;
+    private final int gameCount;
+
+    private PositionIndex(List<Segment> segments, MappedByteBuffer offsets, FileChannel games, int gameCount) {
+        this.segments = segments;
+        this.offsets = offsets;
+        this.games = games;
+        this.gameCount = gameCount;
+    }
+
+    public static PositionIndex open(Path dir) throws IOException {
+        int gameCount;
+        MappedByteBuffer offsets;
+        try (FileChannel channel = FileChannel.open(dir.resolve(OFFSETS_FILE), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) throw new IOException("Not a game index: " + dir);
+            offsets = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (offsets.getInt(0) != OFFSETS_MAGIC || offsets.getInt(4) != VERSION) throw new IOException("Not a game index: " + dir);
+            long count = offsets.getLong(8);
+            if (count < 0 || HEADER_BYTES + (count + 1) * 8 > size) throw new IOException("Truncated game index: " + dir);
+            gameCount = (int) count;
+        }
+        List<Segment> segments = live(segments(dir), gameCount);
+        return new PositionIndex(segments, offsets, FileChannel.open(dir.resolve(GAMES_FILE), StandardOpenOption.READ), gameCount);
+    }
+
+    /**
+     * The index in the {@value #PATH_PROPERTY} directory, or null if there is none there or, with
+     * the reason logged, if it cannot be read.
+     */
+    public static PositionIndex configured() {
+        Path dir = Path.of(System.getProperty(PATH_PROPERTY, DEFAULT_PATH));
+        if (!Files.isDirectory(dir)) return null;
+        try {
+            return open(dir);
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Position index not loaded: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The segment files in the directory that can be read, in no particular order. Any other
+     * is skipped with a warning, and only matters if {@link #live} then finds games uncovered.
+     */
+    static List<Segment> segments(Path dir) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    segments.add(Segment.open(file));
+                } catch (IOException e) {
+                    LOG.log(System.Logger.Level.WARNING, "Skipping index segment: " + e.getMessage());
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * The segments to read, in game order. A merge writes its output before deleting its inputs,
+     * and a flush writes its segment before the game count is updated, so after a crash there may
+     * be segments covered by a larger one or holding games that were never committed; both are
+     * left out.
+     *
+     * @throws IOException if the positions of some committed games are in no segment
+     */
+    static List<Segment> live(List<Segment> all, int gameCount) throws IOException {
+        List<Segment> sorted = new ArrayList<>(all);
+        sorted.sort(Comparator.comparingInt((Segment s) -> s.firstGame).thenComparingInt(s -> -s.endGame));
+        List<Segment> live = new ArrayList<>();
+        int covered = 0;
+        for (Segment segment : sorted) {
+            if (segment.firstGame < covered || segment.endGame > gameCount) continue;
+            if (segment.firstGame > covered) break;
+            live.add(segment);
+            covered = segment.endGame;
+        }
+        if (covered < gameCount) {
+            throw new IOException("No readable index segment holds games " + covered + " to " + (gameCount - 1));
+        }
+        return live;
+    }
+
+    public int games() {
+        return gameCount;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /** Number of times the key was reached in all games. */
+    public long count(long key) {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.bound(key, true) - segment.bound(key, false);
+        }
+        return total;
+    }
+
+    /** Up to {@code limit} hits for the key in game order, after skipping the first {@code skip}. */
+    public List<Hit> find(long key, long skip, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (hits.size() >= limit) break;
+            int first = segment.bound(key, false);
+            int end = segment.bound(key, true);
+            if (skip >= end - first) {
+                skip -= end - first;
+                continue;
+            }
+            for (int i = first + (int) skip; i < end && hits.size() < limit; i++) {
+                hits.add(new Hit(segment.game(i), segment.ply(i)));
+            }
+            skip = 0;
+        }
+        return hits;
+    }
+
+    /** The stored game with the given id. */
+    public PgnGame game(int id) throws IOException {
+        if (id < 0 || id >= gameCount) throw new IllegalArgumentException("No game " + id);
+        long start = offsets.getLong(HEADER_BYTES + id * 8);
+        long end = offsets.getLong(HEADER_BYTES + (id + 1) * 8);
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        while (bytes.hasRemaining()) {
+            if (games.read(bytes, start + bytes.position()) < 0) throw new IOException("Truncated game data");
+        }
+        return readGame(new DataInputStream(new ByteArrayInputStream(bytes.array())));
+    }
+
+    // A stored game: tag count, names and values, whether it was read completely, then its moves.
+    static PgnGame readGame(DataInputStream in) throws IOException {
+        int tagCount = in.readUnsignedShort();
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (int i = 0; i < tagCount; i++) {
+            tags.put(in.readUTF(), in.readUTF());
+        }
+        boolean complete = in.readBoolean();
+        int[] moves = new int[in.readInt()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = in.readInt();
+        }
+        return new PgnGame(tags, moves, complete);
+    }
+
+    @Override
+    public void close() throws IOException {
+        games.close();
+    }
+
+    /**
+     * Usage: {@code PositionIndex dir [fen] [-moves m...] [-limit n]}. Looks up the position, the
+     * start position unless a FEN is given, after the UCI moves, and prints the games reaching it.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: PositionIndex dir [fen] [-moves m...] [-limit n]");
+            System.exit(1);
+        }
+        String fen = Position.START_FEN;
+        List<String> moves = new ArrayList<>();
+        int limit = 10;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-limit" -> limit = Integer.parseInt(args[++i]);
+                case "-moves" -> {
+                    while (i + 1 < args.length && !args[i + 1].startsWith("-")) moves.add(args[++i]);
+                }
+                default -> fen = args[i];
+            }
+        }
+        Position pos = Position.fromFen(fen);
+        for (String uci : moves) {
+            int move = PackedMove.parseUci(pos, uci);
+            if (move == PackedMove.NONE) {
+                System.err.println("Illegal move: " + uci);
+                System.exit(1);
+            }
+            pos.make(move);
+        }
+
+        try (PositionIndex index = open(Path.of(args[0]))) {
+            long start = System.nanoTime();
+            long count = index.count(pos.key());
+            List<Hit> hits = index.find(pos.key(), 0, limit);
+            long micros = (System.nanoTime() - start) / 1000;
+            System.out.println("Position: " + pos.toFen());
+            System.out.println("Games: " + index.games() + " in " + index.segmentCount() + " segments");
+            System.out.println("Hits: " + count + " (" + micros + " us)");
+            for (Hit hit : hits) {
+                PgnGame game = index.game(hit.game());
+                System.out.println("  #" + hit.game() + " ply " + hit.ply() + ": " + game.tags().getOrDefault("White", "?")
+                        + " - " + game.tags().getOrDefault("Black", "?") + " " + game.result());
+            }
+        }
+    }
+}
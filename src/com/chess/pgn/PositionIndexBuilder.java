@@ -0,0 +1,414 @@
+package com.chess.pgn;
+
+import com.chess.logic.Position;
+import com.chess.pgn.PositionIndex.Segment;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link PositionIndex} the way a log-structured merge tree does. Games are appended
+ * to the game store as they come and their positions collected in memory; when the buffer is
+ * full it is sorted and written as a new segment, and whenever the last {@value #FAN_IN}
+ * segments have the same level they are merged into one of the next level. Every entry is
+ * therefore rewritten only a logarithmic number of times, and the index never holds more than
+ * a few segments per level however many games are added.
+ * <p>
+ * A builder opened on an existing index adds to it, and after a crash it goes on from the last
+ * flush: games past it are cut off, and segments left over from an unfinished merge or that
+ * cannot be read are removed.
+ */
+public final class PositionIndexBuilder implements AutoCloseable {
+    public static final int DEFAULT_BUFFER_ENTRIES = 1 << 21;
+    static final int FAN_IN = 8;
+
+    private final Path dir;
+    private final int maxPlies;
+    private final List<Segment> segments;
+    private final FileChannel offsetChannel;
+    private final FileChannel gameChannel;
+    private final DataOutputStream offsetOut;
+    private final DataOutputStream gameOut;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(1 << 10);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private long gameBytes;
+    private int games;
+    private int flushedGames;
+
+    // Buffered entries: keys, and game id and ply packed as game << 32 | ply.
+    private long[] keys;
+    private long[] values;
+    private int buffered;
+
+    public PositionIndexBuilder(Path dir, int bufferEntries, int maxPlies) throws IOException {
+        this.dir = dir;
+        this.maxPlies = maxPlies;
+        keys = new long[bufferEntries];
+        values = new long[bufferEntries];
+        Files.createDirectories(dir);
+
+        offsetChannel = FileChannel.open(dir.resolve(PositionIndex.OFFSETS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        gameChannel = FileChannel.open(dir.resolve(PositionIndex.GAMES_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (offsetChannel.size() == 0) {
+            writeHeader(offsetChannel, PositionIndex.OFFSETS_MAGIC, 0);
+            writeLong(offsetChannel, PositionIndex.HEADER_BYTES, PositionIndex.HEADER_BYTES);
+            writeHeader(gameChannel, PositionIndex.GAMES_MAGIC, 0);
+        }
+        // Checked before anything is cut off, so an index that cannot be read is left as it is.
+        try {
+            ByteBuffer header = ByteBuffer.allocate(PositionIndex.HEADER_BYTES);
+            offsetChannel.read(header, 0);
+            if (header.getInt(0) != PositionIndex.OFFSETS_MAGIC || header.getInt(4) != PositionIndex.VERSION) {
+                throw new IOException("Not a game index: " + dir);
+            }
+            games = flushedGames = (int) header.getLong(8);
+            segments = PositionIndex.live(PositionIndex.segments(dir), games);
+        } catch (IOException e) {
+            offsetChannel.close();
+            gameChannel.close();
+            throw e;
+        }
+        ByteBuffer end = ByteBuffer.allocate(8);
+        offsetChannel.read(end, offsetPosition(games));
+        gameBytes = end.getLong(0);
+        offsetChannel.truncate(offsetPosition(games + 1)).position(offsetPosition(games + 1));
+        gameChannel.truncate(gameBytes).position(gameBytes);
+        offsetOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(offsetChannel), 1 << 16));
+        gameOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(gameChannel), 1 << 16));
+
+        List<Path> live = new ArrayList<>();
+        for (Segment segment : segments) {
+            live.add(segment.path);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + PositionIndex.SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (!live.contains(file)) Files.delete(file);
+            }
+        }
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(dir, "*.tmp")) {
+            for (Path temp : temps) {
+                Files.delete(temp);
+            }
+        }
+    }
+
+    public int games() {
+        return games;
+    }
+
+    /** Adds all games of a PGN file. Games with a move that cannot be read stop at that move. */
+    public void addPgn(Path pgn, int threads) throws IOException {
+        try (PgnReader reader = new PgnReader(pgn, threads, maxPlies)) {
+            while (reader.hasNext()) {
+                addGame(reader.next());
+            }
+        }
+    }
+
+    /** Stores the game and records every position in it; returns its id, or -1 if its start position cannot be read. */
+    public int addGame(PgnGame game) throws IOException {
+        Position pos;
+        try {
+            pos = game.startPosition();
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        if (buffered + game.moves().length + 1 > keys.length) {
+            flush();
+            if (game.moves().length + 1 > keys.length) {
+                keys = Arrays.copyOf(keys, game.moves().length + 1);
+                values = Arrays.copyOf(values, keys.length);
+            }
+        }
+        int id = games++;
+        add(pos.key(), id, 0);
+        for (int i = 0; i < game.moves().length; i++) {
+            pos.make(game.moves()[i]);
+            add(pos.key(), id, i + 1);
+        }
+        writeGame(game);
+        return id;
+    }
+
+    private void add(long key, int game, int ply) {
+        keys[buffered] = key;
+        values[buffered++] = (long) game << 32 | ply;
+    }
+
+    // Same record format as PositionIndex.readGame.
+    private void writeGame(PgnGame game) throws IOException {
+        record.reset();
+        recordOut.writeShort(game.tags().size());
+        for (Map.Entry<String, String> tag : game.tags().entrySet()) {
+            recordOut.writeUTF(tag.getKey());
+            recordOut.writeUTF(tag.getValue());
+        }
+        recordOut.writeBoolean(game.complete());
+        recordOut.writeInt(game.moves().length);
+        for (int move : game.moves()) {
+            recordOut.writeInt(move);
+        }
+        record.writeTo(gameOut);
+        gameBytes += record.size();
+        offsetOut.writeLong(gameBytes);
+    }
+
+    /**
+     * Writes the buffered positions as a new segment, commits the games added so far and then
+     * merges segments as needed. The game data and the segment are forced to disk before the
+     * game count that commits them, so the games survive a crash once the count is written.
+     */
+    public void flush() throws IOException {
+        if (games == flushedGames) return;
+        gameOut.flush();
+        offsetOut.flush();
+        gameChannel.force(false);
+        offsetChannel.force(false);
+
+        sort(keys, values, buffered);
+        segments.add(writeSegment(0, flushedGames, games, buffered, new EntrySource() {
+            int next;
+
+            @Override
+            public long key() {
+                return keys[next];
+            }
+
+            @Override
+            public long value() {
+                return values[next++];
+            }
+        }));
+        buffered = 0;
+        writeLong(offsetChannel, 8, games);
+        offsetChannel.force(false);
+        flushedGames = games;
+        mergeTail();
+    }
+
+    // Merges the last FAN_IN segments while they share a level, like carries in a counter.
+    private void mergeTail() throws IOException {
+        while (segments.size() >= FAN_IN) {
+            List<Segment> tail = segments.subList(segments.size() - FAN_IN, segments.size());
+            int level = tail.get(0).level;
+            long total = 0;
+            for (Segment segment : tail) {
+                if (segment.level != level) return;
+                total += segment.count;
+            }
+            if (total > PositionIndex.MAX_SEGMENT_ENTRIES) return;
+            Segment merged = merge(new ArrayList<>(tail), level + 1);
+            for (Segment segment : tail) {
+                Files.delete(segment.path);
+            }
+            tail.clear();
+            segments.add(merged);
+        }
+    }
+
+    // Inputs cover consecutive game ranges in order, so on equal keys the earlier input comes first.
+    private Segment merge(List<Segment> inputs, int level) throws IOException {
+        long total = 0;
+        for (Segment segment : inputs) {
+            total += segment.count;
+        }
+        int[] next = new int[inputs.size()];
+        return writeSegment(level, inputs.get(0).firstGame, inputs.get(inputs.size() - 1).endGame, total, new EntrySource() {
+            int current;
+
+            @Override
+            public long key() {
+                current = -1;
+                long best = 0;
+                for (int i = 0; i < next.length; i++) {
+                    Segment segment = inputs.get(i);
+                    if (next[i] == segment.count) continue;
+                    long key = segment.key(next[i]);
+                    if (current < 0 || key < best) {
+                        current = i;
+                        best = key;
+                    }
+                }
+                return best;
+            }
+
+            @Override
+            public long value() {
+                Segment segment = inputs.get(current);
+                int index = next[current]++;
+                return (long) segment.game(index) << 32 | segment.ply(index);
+            }
+        });
+    }
+
+    /** Entries in order for a segment being written: each key is followed by its value. */
+    private interface EntrySource {
+        long key();
+
+        long value();
+    }
+
+    // Written to a temporary file and forced to disk before it is renamed, and the rename is
+    // forced too, so a segment is either complete or not there, and there once this returns.
+    private Segment writeSegment(int level, int firstGame, int endGame, long count, EntrySource source) throws IOException {
+        Path file = dir.resolve(String.format("%08x-%08x", firstGame, endGame) + PositionIndex.SEGMENT_SUFFIX);
+        Path temp = dir.resolve(file.getFileName() + ".tmp");
+        long[] fences = new long[Segment.fences(count)];
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            data.writeInt(PositionIndex.SEGMENT_MAGIC);
+            data.writeInt(PositionIndex.VERSION);
+            data.writeLong(count);
+            data.writeInt(level);
+            data.writeInt(firstGame);
+            data.writeInt(endGame);
+            data.writeInt(0);
+            for (long i = 0; i < count; i++) {
+                long key = source.key();
+                long value = source.value();
+                if (i % PositionIndex.FENCE_INTERVAL == 0) fences[(int) (i / PositionIndex.FENCE_INTERVAL)] = key;
+                data.writeLong(key);
+                data.writeLong(value);
+            }
+            for (long fence : fences) {
+                data.writeLong(fence);
+            }
+            data.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(dir);
+        return Segment.open(file);
+    }
+
+    // Forces the directory's entries to disk. Some platforms cannot open a directory as a
+    // channel; their file systems are left to persist renames on their own.
+    private static void syncDirectory(Path dir) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Stable least-significant-digit radix sort of the first {@code n} keys by signed value,
+     * moving the values along. Entries are added in game and ply order, so stability keeps
+     * that order among equal keys without comparing the values.
+     */
+    static void sort(long[] keys, long[] values, int n) {
+        long[] keyBuffer = new long[n];
+        long[] valueBuffer = new long[n];
+        long[] fromKeys = keys, fromValues = values, toKeys = keyBuffer, toValues = valueBuffer;
+        int[] counts = new int[1 << 16];
+        for (int shift = 0; shift < 64; shift += 16) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[digit(fromKeys[i], shift)]++;
+            }
+            int position = 0;
+            for (int d = 0; d < counts.length; d++) {
+                int c = counts[d];
+                counts[d] = position;
+                position += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int at = counts[digit(fromKeys[i], shift)]++;
+                toKeys[at] = fromKeys[i];
+                toValues[at] = fromValues[i];
+            }
+            long[] swap = fromKeys;
+            fromKeys = toKeys;
+            toKeys = swap;
+            swap = fromValues;
+            fromValues = toValues;
+            toValues = swap;
+        }
+        // Four passes leave the result back in the original arrays.
+    }
+
+    // Flipping the sign bit makes the unsigned digits order keys by signed value.
+    private static int digit(long key, int shift) {
+        return (int) ((key ^ Long.MIN_VALUE) >>> shift) & 0xFFFF;
+    }
+
+    private static long offsetPosition(int game) {
+        return PositionIndex.HEADER_BYTES + game * 8L;
+    }
+
+    private static void writeHeader(FileChannel channel, int magic, long count) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PositionIndex.HEADER_BYTES);
+        header.putInt(0, magic).putInt(4, PositionIndex.VERSION).putLong(8, count);
+        channel.write(header, 0);
+    }
+
+    private static void writeLong(FileChannel channel, long position, long value) throws IOException {
+        channel.write(ByteBuffer.allocate(8).putLong(0, value), position);
+    }
+
+    /** Flushes what is buffered and closes the files. */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            gameOut.close();
+            offsetOut.close();
+        }
+    }
+
+    /** Usage: {@code PositionIndexBuilder dir games.pgn... [-buffer entries] [-plies n] [-threads n]}. */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PositionIndexBuilder dir games.pgn... [-buffer entries] [-plies n] [-threads n]");
+            System.exit(1);
+        }
+        int buffer = DEFAULT_BUFFER_ENTRIES;
+        int plies = Integer.MAX_VALUE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-buffer" -> buffer = Integer.parseInt(args[++i]);
+                case "-plies" -> plies = Integer.parseInt(args[++i]);
+                case "-threads" -> threads = Integer.parseInt(args[++i]);
+                default -> inputs.add(Path.of(args[i]));
+            }
+        }
+
+        long start = System.nanoTime();
+        int before, after;
+        try (PositionIndexBuilder builder = new PositionIndexBuilder(Path.of(args[0]), buffer, plies)) {
+            before = builder.games();
+            for (Path input : inputs) {
+                builder.addPgn(input, threads);
+            }
+            after = builder.games();
+        }
+        try (PositionIndex index = PositionIndex.open(Path.of(args[0]))) {
+            System.out.println("Games added: " + (after - before) + ", total " + index.games());
+            System.out.println("Segments: " + index.segmentCount());
+        }
+        System.out.println("Time: " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,173 @@
+package com.chess.server;
+
+import com.chess.logic.GameListener;
+import com.chess.logic.GameLogic;
+import com.chess.logic.MoveGenerator;
+import com.chess.logic.MoveList;
+import com.chess.logic.PackedMove;
+import com.chess.logic.Position;
+import com.chess.model.MoveRecord;
+import com.chess.model.PieceColor;
+import java.util.StringJoiner;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One game hosted by the {@link SessionServer}: the rules core, both clocks and the result.
+ * All access goes through the session's lock, so any number of connections may share it. It is
+ * a {@link ReentrantLock} rather than a monitor because a virtual thread blocked inside a
+ * {@code synchronized} block holds on to its carrier thread.
+ * <p>
+ * A clock does not tick. The side to move has its remaining time reduced by what it used once it
+ * moves, and a single task on the server's shared scheduler is due when its flag would fall.
+ */
+final class GameSession implements GameListener {
+    /** PGN result while the game is still going on. */
+    static final String ONGOING = "*";
+
+    private final long id;
+    private final GameLogic game = new GameLogic();
+    private final ScheduledExecutorService scheduler;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean timed;
+    private final long incrementMillis;
+    // Indexed by color.
+    private final long[] remainingMillis = new long[2];
+    private long turnStartNanos;
+    private ScheduledFuture<?> flag;
+    private String result = ONGOING;
+
+    GameSession(long id, long millis, long incrementMillis, ScheduledExecutorService scheduler) {
+        this.id = id;
+        this.scheduler = scheduler;
+        this.timed = millis > 0;
+        this.incrementMillis = incrementMillis;
+        remainingMillis[Position.WHITE] = remainingMillis[Position.BLACK] = millis;
+        game.addListener(this);
+        startClock();
+    }
+
+    long id() {
+        return id;
+    }
+
+    /**
+     * Plays a move in coordinate notation and returns it in SAN, followed by the result it leaves
+     * the game with. Besides mate and stalemate, the game is drawn as soon as the fifty-move rule
+     * or a threefold repetition applies; nobody needs to claim it.
+     *
+     * @throws IllegalStateException if the game is over, including by the mover's flag having fallen
+     * @throws IllegalArgumentException if the move is not legal
+     */
+    String play(String uci) {
+        lock.lock();
+        try {
+            checkFlag();
+            if (!result.equals(ONGOING)) throw new IllegalStateException("game over " + result);
+            int move = PackedMove.parseUci(game.getPosition(), uci);
+            if (move == PackedMove.NONE) throw new IllegalArgumentException("illegal move " + uci);
+
+            int mover = game.getPosition().sideToMove();
+            if (flag != null) flag.cancel(false);
+            if (timed) remainingMillis[mover] -= elapsedMillis() - incrementMillis;
+            String san = game.playMove(move).san();
+            Position pos = game.getPosition();
+            if (result.equals(ONGOING) && (pos.halfmoveClock() >= 100 || pos.repetitions() >= 2)) {
+                game.isGameOver = true;
+                result = "1/2-1/2";
+            }
+            if (result.equals(ONGOING)) startClock();
+            return san + " " + result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Legal moves in coordinate notation, separated by spaces. */
+    String legalMoves() {
+        lock.lock();
+        try {
+            StringJoiner moves = new StringJoiner(" ");
+            if (result.equals(ONGOING)) {
+                MoveList legal = new MoveList();
+                MoveGenerator.generateLegal(game.getPosition(), legal);
+                for (int i = 0; i < legal.size(); i++) {
+                    moves.add(PackedMove.toUci(legal.get(i)));
+                }
+            }
+            return moves.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Remaining milliseconds of White and Black, the result and the position as FEN. */
+    String state() {
+        lock.lock();
+        try {
+            checkFlag();
+            long white = remainingMillis[Position.WHITE], black = remainingMillis[Position.BLACK];
+            if (timed && result.equals(ONGOING)) {
+                if (game.getPosition().sideToMove() == Position.WHITE) white -= elapsedMillis();
+                else black -= elapsedMillis();
+            }
+            return white + " " + black + " " + result + " " + game.getPosition().toFen();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            if (flag != null) flag.cancel(false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void movePlayed(MoveRecord record, PieceColor nextPlayer) {
+    }
+
+    // Called from inside play, which already holds the lock.
+    @Override
+    public void gameOver(String message) {
+        PieceColor toMove = game.currentPlayer;
+        if (!game.isKingInCheck(toMove)) result = "1/2-1/2";
+        else result = toMove == PieceColor.WHITE ? "0-1" : "1-0";
+    }
+
+    private void startClock() {
+        turnStartNanos = System.nanoTime();
+        if (!timed) return;
+        long millis = Math.max(0, remainingMillis[game.getPosition().sideToMove()]);
+        flag = scheduler.schedule(this::flagDue, millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flagDue() {
+        lock.lock();
+        try {
+            checkFlag();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The flag task may run a little late, or be overtaken by a move sent just after time ran out.
+    private void checkFlag() {
+        if (!timed || !result.equals(ONGOING)) return;
+        int side = game.getPosition().sideToMove();
+        if (elapsedMillis() >= remainingMillis[side]) {
+            remainingMillis[side] = 0;
+            game.isGameOver = true;
+            result = side == Position.WHITE ? "0-1" : "1-0";
+        }
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - turnStartNanos) / 1_000_000;
+    }
+}
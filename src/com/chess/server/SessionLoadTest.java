@@ -0,0 +1,148 @@
+package com.chess.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many concurrent games a {@link SessionServer} holds: each client keeps one game
+ * going, playing random legal moves back to back with a pause between them, and the round trip
+ * of every move is recorded. Prints the median, 99th percentile and worst move latency, so runs
+ * with growing client counts show where the tail starts to climb.
+ */
+public final class SessionLoadTest {
+    // Bounds the length of random games, which seldom end by mate or stalemate.
+    private static final int MAX_PLIES = 200;
+
+    private SessionLoadTest() {
+    }
+
+    /**
+     * Usage: {@code SessionLoadTest [-clients n] [-seconds s] [-think ms] [-minutes m] [-port p]}.
+     * Without a port the server runs in the same JVM.
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = 1000;
+        int seconds = 20;
+        int thinkMillis = 100;
+        double minutes = 5;
+        int port = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-clients" -> clients = Integer.parseInt(args[++i]);
+                case "-seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "-think" -> thinkMillis = Integer.parseInt(args[++i]);
+                case "-minutes" -> minutes = Double.parseDouble(args[++i]);
+                case "-port" -> port = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        SessionServer server = null;
+        if (port < 0) {
+            server = new SessionServer(0);
+            server.start();
+            port = server.port();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Client[] results = new Client[clients];
+        ExecutorService executor = SessionServer.newConnectionExecutor();
+        for (int i = 0; i < clients; i++) {
+            results[i] = new Client(port, minutes, thinkMillis, deadline);
+            executor.execute(results[i]);
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        if (server != null) server.close();
+
+        int count = 0, games = 0, failures = 0;
+        for (Client client : results) {
+            count += client.count;
+            games += client.games;
+            if (client.failure != null) failures++;
+        }
+        long[] latencies = new long[count];
+        int offset = 0;
+        for (Client client : results) {
+            System.arraycopy(client.latencies, 0, latencies, offset, client.count);
+            offset += client.count;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%d clients, %d games, %d moves (%.0f/s), %d failed%n",
+                clients, games, count, count / (double) seconds, failures);
+        if (count > 0) {
+            System.out.printf("move latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    latencies[count / 2] / 1e6, latencies[(int) (count * 0.99)] / 1e6, latencies[count - 1] / 1e6);
+        }
+    }
+
+    private static final class Client implements Runnable {
+        private final int port;
+        private final double minutes;
+        private final int thinkMillis;
+        private final long deadline;
+        long[] latencies = new long[256];
+        int count;
+        int games;
+        Exception failure;
+
+        Client(int port, double minutes, int thinkMillis, long deadline) {
+            this.port = port;
+            this.minutes = minutes;
+            this.thinkMillis = thinkMillis;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                socket.setTcpNoDelay(true);
+                while (System.nanoTime() < deadline) {
+                    String id = ask(in, out, "new " + minutes);
+                    games++;
+                    String result = "*";
+                    for (int ply = 0; ply < MAX_PLIES && result.equals("*") && System.nanoTime() < deadline; ply++) {
+                        String[] moves = ask(in, out, "moves " + id).split(" ");
+                        if (moves[0].isEmpty()) break;
+                        String move = moves[ThreadLocalRandom.current().nextInt(moves.length)];
+                        long start = System.nanoTime();
+                        String reply = ask(in, out, "move " + id + " " + move);
+                        record(System.nanoTime() - start);
+                        result = reply.substring(reply.lastIndexOf(' ') + 1);
+                        if (thinkMillis > 0) Thread.sleep(thinkMillis);
+                    }
+                    ask(in, out, "close " + id);
+                }
+                out.print("quit\n");
+                out.flush();
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        private void record(long nanos) {
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = nanos;
+        }
+
+        private static String ask(BufferedReader in, PrintWriter out, String command) throws IOException {
+            out.print(command);
+            out.print('\n');
+            out.flush();
+            String reply = in.readLine();
+            if (reply == null || !reply.startsWith("ok")) throw new IOException(command + ": " + reply);
+            return reply.length() > 3 ? reply.substring(3) : "";
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.chess.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless server hosting any number of independent games, spoken to over a local socket with
+ * one command per line. Each connection is served by its own thread, a virtual one where the
+ * JVM has them, and all clocks share one scheduler thread.
+ * <p>
+ * Commands, each answered by one line starting with {@code ok} or {@code error}:
+ * <pre>
+ * new [minutes [increment-seconds]]   ok &lt;id&gt;             (no minutes: untimed)
+ * move &lt;id&gt; &lt;uci&gt;                      ok &lt;notation&gt; &lt;result&gt;
+ * moves &lt;id&gt;                           ok &lt;uci&gt; ...
+ * state &lt;id&gt;                           ok &lt;white ms&gt; &lt;black ms&gt; &lt;result&gt; &lt;fen&gt;
+ * close &lt;id&gt;                           ok
+ * quit                                 (closes the connection)
+ * </pre>
+ * Results are written as in PGN, {@code *} while the game goes on. Games are not tied to the
+ * connection that created them and stay until closed.
+ */
+public final class SessionServer implements AutoCloseable {
+    public static final String PORT_PROPERTY = "chess.server.port";
+    public static final int DEFAULT_PORT = 7878;
+
+    private final ServerSocket socket;
+    private final ExecutorService connections = newConnectionExecutor();
+    private final ScheduledThreadPoolExecutor clock = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "chess-clock");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /** Listens on the loopback address; port 0 picks a free one. */
+    public SessionServer(int port) throws IOException {
+        socket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        // Every move cancels a flag task due minutes later; left queued they would pile up.
+        clock.setRemoveOnCancelPolicy(true);
+    }
+
+    public int port() {
+        return socket.getLocalPort();
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /** Accepts connections until the server is closed. */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                Socket connection = socket.accept();
+                connections.execute(() -> converse(connection));
+            }
+        } catch (SocketException e) {
+            if (!socket.isClosed()) throw e;
+        }
+    }
+
+    /** Runs {@link #serve} on a background thread. */
+    public void start() {
+        Thread acceptor = new Thread(() -> {
+            try {
+                serve();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "chess-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        connections.shutdownNow();
+        clock.shutdownNow();
+        sessions.clear();
+    }
+
+    // Virtual threads need Java 21 while the build targets 17, so they are looked up at run time.
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "chess-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void converse(Socket connection) {
+        try (connection;
+             BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+            connection.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.equals("quit")) break;
+                if (line.isEmpty()) continue;
+                out.print(respond(line));
+                out.print('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away; its games stay until closed.
+        }
+    }
+
+    String respond(String line) {
+        String[] words = line.split("\\s+");
+        try {
+            return switch (words[0]) {
+                case "new" -> {
+                    long millis = words.length > 1 ? Math.round(Double.parseDouble(words[1]) * 60_000) : 0;
+                    long increment = words.length > 2 ? Math.round(Double.parseDouble(words[2]) * 1000) : 0;
+                    GameSession session = new GameSession(nextId.getAndIncrement(), millis, increment, clock);
+                    sessions.put(session.id(), session);
+                    yield "ok " + session.id();
+                }
+                case "move" -> "ok " + session(words, 3).play(words[2]);
+                case "moves" -> "ok " + session(words, 2).legalMoves();
+                case "state" -> "ok " + session(words, 2).state();
+                case "close" -> {
+                    requireArguments(words, 2);
+                    GameSession session = sessions.remove(Long.parseLong(words[1]));
+                    if (session != null) session.close();
+                    yield "ok";
+                }
+                default -> "error unknown command " + words[0];
+            };
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "error " + e.getMessage();
+        }
+    }
+
+    private GameSession session(String[] words, int length) {
+        requireArguments(words, length);
+        GameSession session = sessions.get(Long.parseLong(words[1]));
+        if (session == null) throw new IllegalArgumentException("no game " + words[1]);
+        return session;
+    }
+
+    private static void requireArguments(String[] words, int length) {
+        if (words.length < length) throw new IllegalArgumentException("missing argument");
+    }
+
+    /** Usage: {@code SessionServer [-port p]}; the port defaults to {@value #PORT_PROPERTY} or 7878. */
+    public static void main(String[] args) throws IOException {
+        int port = Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-port" -> port = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        try (SessionServer server = new SessionServer(port)) {
+            System.out.println("Serving games on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.port());
+            server.serve();
+        }
+    }
+}
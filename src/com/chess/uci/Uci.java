@@ -0,0 +1,303 @@
+package com.chess.uci;
+
+import com.chess.engine.Search;
+import com.chess.engine.SearchLimits;
+import com.chess.engine.SearchResult;
+import com.chess.engine.Tablebases;
+import com.chess.engine.TimeManager;
+import com.chess.engine.TranspositionTable;
+import com.chess.logic.PackedMove;
+import com.chess.logic.Position;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.StringJoiner;
+
+/**
+ * Universal Chess Interface front-end on standard input and output, so the engine can play
+ * under tournament managers. Supports {@code position}, {@code go} with {@code wtime},
+ * {@code btime}, {@code winc}, {@code binc}, {@code movestogo}, {@code movetime},
+ * {@code depth}, {@code nodes}, {@code infinite} and {@code ponder}, as well as {@code stop},
+ * {@code ponderhit} and the {@code Hash}, {@code Threads} and {@code Ponder} options. An
+ * {@code info} line is sent after every completed iteration, and {@code bestmove} names the
+ * reply to ponder on only while {@code Ponder} is on.
+ * <p>
+ * Searches run on a thread of their own, and {@code stop} interrupts it, which is how the
+ * search is cancelled elsewhere too; the best move found so far is still reported. Infinite
+ * searches are run as ponder searches, which keep going until they are stopped. A
+ * {@code ucinewgame} or {@code setoption} sent during a search stops it first.
+ */
+public final class Uci {
+    private static final String NAME = "Chess";
+
+    private final PrintStream out;
+    private final TranspositionTable table = TranspositionTable.configured();
+    private Search search = new Search(table, Search.configuredThreads());
+    private Tablebases tablebases;
+    private Position position = Position.fromFen(Position.START_FEN);
+    private Thread searcher;
+    // Limits the running ponder search takes on at ponderhit.
+    private SearchLimits ponderLimits;
+    private volatile boolean ponderEnabled;
+
+    public Uci(PrintStream out) {
+        this.out = out;
+    }
+
+    /** Usage: {@code Uci}, then UCI commands on standard input. */
+    public static void main(String[] args) throws IOException {
+        Uci uci = new Uci(System.out);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!uci.execute(line.trim())) break;
+        }
+        uci.quit();
+    }
+
+    /** Runs one command; returns false on {@code quit}. Unknown commands are ignored, as UCI asks. */
+    public boolean execute(String line) {
+        String[] words = line.split("\\s+");
+        switch (words[0]) {
+            case "uci" -> {
+                send("id name " + NAME);
+                send("id author Chess");
+                send("option name Hash type spin default " + TranspositionTable.DEFAULT_MEGABYTES + " min 1 max 4096");
+                send("option name Threads type spin default " + search.threads() + " min 1 max 256");
+                send("option name Ponder type check default false");
+                send("uciok");
+                loadTablebases();
+            }
+            case "isready" -> send("readyok");
+            case "setoption" -> setOption(words);
+            case "ucinewgame" -> {
+                stopSearch();
+                table.clear();
+            }
+            case "position" -> setPosition(words);
+            case "go" -> go(words);
+            case "stop" -> stop();
+            case "ponderhit" -> ponderHit();
+            case "quit" -> {
+                return false;
+            }
+            default -> {
+            }
+        }
+        return true;
+    }
+
+    /** Stops any search and releases the search threads. */
+    public void quit() {
+        stopSearch();
+        search.close();
+    }
+
+    // The input thread must not wait on an infinite or ponder search: the stop would never be read.
+    private void stopSearch() {
+        stop();
+        awaitSearch();
+    }
+
+    // Only maps tables generated beforehand, which is quick; the reason they are missing goes to the GUI.
+    private void loadTablebases() {
+        if (tablebases != null) return;
+        Path dir = Tablebases.configuredDir();
+        try {
+            tablebases = Tablebases.open(dir);
+            search.setTablebases(tablebases);
+        } catch (IOException e) {
+            send("info string no tablebases: " + e.getMessage() + "; generate them with Tablebases " + dir);
+        }
+    }
+
+    private void setOption(String[] words) {
+        String name = value(words, "name", "value");
+        String value = value(words, "value", null);
+        if (name == null || value == null) return;
+        stopSearch();
+        try {
+            switch (name.toLowerCase()) {
+                case "hash" -> table.resize(Math.max(1, Integer.parseInt(value)));
+                case "ponder" -> ponderEnabled = Boolean.parseBoolean(value);
+                case "threads" -> {
+                    synchronized (this) {
+                        search.close();
+                        search = new Search(table, Math.max(1, Integer.parseInt(value)));
+                        search.setTablebases(tablebases);
+                    }
+                }
+                default -> {
+                }
+            }
+        } catch (NumberFormatException e) {
+            send("info string invalid value " + value + " for " + name);
+        }
+    }
+
+    private void setPosition(String[] words) {
+        int i = 1;
+        Position next;
+        if (i < words.length && words[i].equals("startpos")) {
+            next = Position.fromFen(Position.START_FEN);
+            i++;
+        } else if (i < words.length && words[i].equals("fen")) {
+            StringJoiner fen = new StringJoiner(" ");
+            for (i++; i < words.length && !words[i].equals("moves"); i++) {
+                fen.add(words[i]);
+            }
+            try {
+                next = Position.fromFen(fen.toString());
+            } catch (RuntimeException e) {
+                send("info string invalid fen " + fen);
+                return;
+            }
+        } else {
+            return;
+        }
+        if (i < words.length && words[i].equals("moves")) {
+            for (i++; i < words.length; i++) {
+                int move = PackedMove.parseUci(next, words[i]);
+                if (move == PackedMove.NONE) {
+                    send("info string illegal move " + words[i]);
+                    return;
+                }
+                next.make(move);
+            }
+        }
+        position = next;
+    }
+
+    private void go(String[] words) {
+        awaitSearch();
+        int depth = Search.MAX_PLY;
+        long nodes = Long.MAX_VALUE, moveTime = -1;
+        long whiteTime = -1, blackTime = -1, whiteIncrement = 0, blackIncrement = 0;
+        int movesToGo = 0;
+        boolean infinite = false, ponder = false;
+        try {
+            for (int i = 1; i < words.length; i++) {
+                switch (words[i]) {
+                    case "depth" -> depth = Math.max(1, Integer.parseInt(words[++i]));
+                    case "nodes" -> nodes = Long.parseLong(words[++i]);
+                    case "movetime" -> moveTime = Long.parseLong(words[++i]);
+                    case "wtime" -> whiteTime = Long.parseLong(words[++i]);
+                    case "btime" -> blackTime = Long.parseLong(words[++i]);
+                    case "winc" -> whiteIncrement = Long.parseLong(words[++i]);
+                    case "binc" -> blackIncrement = Long.parseLong(words[++i]);
+                    case "movestogo" -> movesToGo = Integer.parseInt(words[++i]);
+                    case "infinite" -> infinite = true;
+                    case "ponder" -> ponder = true;
+                    default -> {
+                    }
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            send("info string invalid go command");
+            return;
+        }
+
+        SearchLimits limits = new SearchLimits(depth, nodes, Long.MAX_VALUE, Long.MAX_VALUE);
+        boolean white = position.sideToMove() == Position.WHITE;
+        long clock = white ? whiteTime : blackTime;
+        if (moveTime >= 0) {
+            limits = limits.withTime(moveTime, moveTime);
+        } else if (clock >= 0) {
+            limits = TimeManager.allocate(limits, clock, white ? whiteIncrement : blackIncrement,
+                    movesToGo, position.fullmoveNumber());
+        }
+
+        Position root = position.copy();
+        SearchLimits searchLimits = limits;
+        // A ponder search keeps going without limits until ponderhit hands it the real ones.
+        boolean endless = infinite || ponder;
+        synchronized (this) {
+            ponderLimits = ponder ? limits : null;
+            Search current = search;
+            current.setProgressListener(this::info);
+            searcher = new Thread(() -> bestMove(current.search(root, searchLimits, endless)), "uci-search");
+            searcher.start();
+        }
+    }
+
+    private synchronized void stop() {
+        ponderLimits = null;
+        if (searcher != null) searcher.interrupt();
+    }
+
+    private synchronized void ponderHit() {
+        if (ponderLimits != null) {
+            search.ponderHit(ponderLimits);
+            ponderLimits = null;
+        }
+    }
+
+    private void awaitSearch() {
+        Thread running;
+        synchronized (this) {
+            running = searcher;
+        }
+        if (running == null) return;
+        try {
+            running.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void info(SearchResult result) {
+        StringBuilder line = new StringBuilder("info depth ").append(result.depth());
+        int score = result.score();
+        if (Math.abs(score) >= Search.MATE_BOUND) {
+            int moves = (Search.MATE - Math.abs(score) + 1) / 2;
+            line.append(" score mate ").append(score > 0 ? moves : -moves);
+        } else {
+            line.append(" score cp ").append(score);
+        }
+        line.append(" nodes ").append(result.nodes())
+                .append(" nps ").append(result.nodes() * 1000 / Math.max(1, result.timeMillis()))
+                .append(" time ").append(result.timeMillis())
+                .append(" hashfull ").append(table.hashfull())
+                .append(" pv");
+        for (int move : result.principalVariation()) {
+            line.append(' ').append(PackedMove.toUci(move));
+        }
+        send(line.toString());
+    }
+
+    private void bestMove(SearchResult result) {
+        int[] line = result.principalVariation();
+        if (result.bestMove() == PackedMove.NONE) {
+            send("bestmove 0000");
+        } else if (ponderEnabled && line.length > 1) {
+            send("bestmove " + PackedMove.toUci(result.bestMove()) + " ponder " + PackedMove.toUci(line[1]));
+        } else {
+            send("bestmove " + PackedMove.toUci(result.bestMove()));
+        }
+    }
+
+    // Words of a setoption command between a key and the next key, such as a name with spaces.
+    private static String value(String[] words, String key, String end) {
+        StringJoiner value = null;
+        for (String word : words) {
+            if (value == null) {
+                if (word.equals(key)) value = new StringJoiner(" ");
+            } else if (word.equals(end)) {
+                break;
+            } else {
+                value.add(word);
+            }
+        }
+        return value == null ? null : value.toString();
+    }
+
+    private void send(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+}
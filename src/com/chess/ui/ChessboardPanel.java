@@ -3,6 +3,7 @@ package com.chess.ui;
 import com.chess.logic.GameLogic;
 import com.chess.model.Move;
 import com.chess.model.Piece;
+import com.chess.model.PieceType;
 
 import javax.swing.*;
 import java.awt.*;
@@ -96,7 +97,7 @@ public class ChessboardPanel extends JPanel {
         g2d.setFont(pieceFont);
         for (int row = 0; row < 8; row++) {
             for (int col = 0; col < 8; col++) {
-                Piece piece = gameLogic.board[row][col];
+                Piece piece = gameLogic.pieceAt(row, col);
                 if (piece != null) {
                     int displayRow = isFlipped ? 7 - row : row;
                     int displayCol = isFlipped ? 7 - col : col;
@@ -115,7 +116,7 @@ public class ChessboardPanel extends JPanel {
     private class ChessMouseListener extends MouseAdapter {
         @Override
         public void mousePressed(MouseEvent e) {
-            if (gameLogic == null || gameLogic.isGameOver || gameLogic.isPaused) {
+            if (gameLogic == null || gameLogic.isGameOver || gameLogic.isPaused || gameLogic.isAiTurn()) {
                 return;
             }
             int col = e.getX() / TILE_SIZE;
@@ -124,8 +125,27 @@ public class ChessboardPanel extends JPanel {
             int actualRow = isFlipped ? 7 - row : row;
             int actualCol = isFlipped ? 7 - col : col;
 
-            gameLogic.handleSquareSelection(actualRow, actualCol);
+            if (gameLogic.isPromotion(actualRow, actualCol)) {
+                gameLogic.handleSquareSelection(actualRow, actualCol, choosePromotion());
+            } else {
+                gameLogic.handleSquareSelection(actualRow, actualCol);
+            }
             repaint();
         }
     }
+
+    // Asked before the move is handed to the game, since promotion is part of the move itself.
+    private PieceType choosePromotion() {
+        Object[] options = {"Queen", "Rook", "Bishop", "Knight"};
+        String choice = (String) JOptionPane.showInputDialog(
+                this, "Choose a piece to promote your pawn to:",
+                "Pawn Promotion", JOptionPane.PLAIN_MESSAGE, null, options, "Queen");
+        if (choice == null) return PieceType.QUEEN;
+        return switch (choice) {
+            case "Rook" -> PieceType.ROOK;
+            case "Bishop" -> PieceType.BISHOP;
+            case "Knight" -> PieceType.KNIGHT;
+            default -> PieceType.QUEEN;
+        };
+    }
 }
@@ -1,15 +1,31 @@
 package com.chess.ui;
 
 import com.chess.ChessGame;
+import com.chess.engine.OpeningBook;
+import com.chess.engine.Search;
+import com.chess.engine.SearchLimits;
+import com.chess.engine.SearchResult;
+import com.chess.engine.SearchService;
+import com.chess.engine.Tablebases;
+import com.chess.engine.TimeManager;
+import com.chess.engine.TranspositionTable;
+import com.chess.logic.PackedMove;
+import com.chess.logic.Position;
+import com.chess.logic.GameListener;
 import com.chess.logic.GameLogic;
 import com.chess.model.MoveRecord; // Import MoveRecord
 import com.chess.model.Piece; // Import Piece
 import com.chess.model.PieceColor;
+import com.chess.pgn.PgnGame;
+import com.chess.pgn.PositionIndex;
 import java.awt.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 
-public class GameContainerPanel extends JPanel {
+public class GameContainerPanel extends JPanel implements GameListener {
     private final ChessboardPanel chessboardPanel;
     private final InfoPanel infoPanel;
     private final HistoryPanel historyPanel;
@@ -24,6 +40,14 @@ public class GameContainerPanel extends JPanel {
     private boolean whiteLowTimeAlerted, blackLowTimeAlerted;
     public GameLogic gameLogic; // Made public for access from InfoPanel
     private final ChessGame chessGame;
+    private SearchService engine;
+    private SearchLimits aiLimits;
+    private String gameType;
+    // Key of the position the engine is pondering on, valid while it ponders.
+    private long ponderKey;
+    // Archive of games the board is looked up in, or null when none has been built.
+    private static final int DATABASE_GAMES_SHOWN = 3;
+    private final PositionIndex positionIndex = PositionIndex.configured();
 
 
     public GameContainerPanel(ChessGame chessGame) {
@@ -87,12 +111,25 @@ public class GameContainerPanel extends JPanel {
     public void initializeGame(GameLogic gameLogic, String timeControl, String gameType, String gameMode, String aiLevel) {
         // ... (Original content unchanged) ...
         this.gameLogic = gameLogic;
+        gameLogic.addListener(this);
         chessboardPanel.setGameLogic(gameLogic);
         infoPanel.updateGameInfo(gameMode, aiLevel);
         updateStatus("White's Turn");
         whiteLowTimeAlerted = false;
         blackLowTimeAlerted = false;
         infoPanel.updateActionButtonsState(true);
+        showDatabaseHits();
+        this.gameType = gameType;
+
+        if ("AI".equals(gameMode)) {
+            gameLogic.aiColor = PieceColor.BLACK;
+            // Results come back through one invokeLater, so the game state is only touched on the EDT.
+            engine = new SearchService(TranspositionTable.configured(), Search.configuredThreads(),
+                    SwingUtilities::invokeLater);
+            engine.setBook(OpeningBook.configured());
+            engine.setTablebases(Tablebases.configured());
+            aiLimits = SearchLimits.forLevel(aiLevel);
+        }
 
 
         switch (gameType) {
@@ -120,6 +157,10 @@ public class GameContainerPanel extends JPanel {
         // ... (Original content unchanged) ...
         stopTimers();
         this.gameLogic = null;
+        if (engine != null) {
+            engine.close();
+            engine = null;
+        }
         whiteTimeSeconds = 0;
         blackTimeSeconds = 0;
         updateTimerLabel(whitePlayerProfile.getTimerPanel(), 0);
@@ -184,6 +225,7 @@ public class GameContainerPanel extends JPanel {
 
         if (gameLogic.isPaused) {
             stopTimers();
+            cancelAiMove();
             updateStatus("Game Paused");
         } else {
             if (gameLogic.currentPlayer == PieceColor.WHITE) {
@@ -192,12 +234,102 @@ public class GameContainerPanel extends JPanel {
                 startBlackTimer();
             }
             updateStatus(gameLogic.currentPlayer + "'s Turn");
+            requestAiMoveIfDue();
+        }
+    }
+
+    // The game calls back on whichever thread played the move; the panels are updated afterwards on the EDT.
+    @Override
+    public void movePlayed(MoveRecord record, PieceColor nextPlayer) {
+        SwingUtilities.invokeLater(() -> {
+            if (record != null) {
+                historyPanel.addMove(record.pgn());
+                if (record.capturedPiece() != null) {
+                    infoPanel.addCapturedPiece(record.capturedPiece(), nextPlayer == PieceColor.WHITE ? PieceColor.BLACK : PieceColor.WHITE);
+                }
+            }
+
+            updateStatus(nextPlayer + "'s Turn");
+            if (nextPlayer == PieceColor.WHITE) {
+                stopBlackTimer();
+                startWhiteTimer();
+            } else {
+                stopWhiteTimer();
+                startBlackTimer();
+            }
+
+            // Re-evaluate the state of the action buttons (mainly for the Undo button)
+            infoPanel.updateActionButtonsState(true);
+            showDatabaseHits();
+            requestAiMoveIfDue();
+        });
+    }
+
+    @Override
+    public void gameOver(String message) {
+        SwingUtilities.invokeLater(() -> chessGame.handleGameOver(message));
+    }
+
+    // The lookup only touches a few pages of the index, so it is done right here on the EDT.
+    private void showDatabaseHits() {
+        if (positionIndex == null || gameLogic == null) return;
+        long key = gameLogic.getPositionKey();
+        List<String> games = new ArrayList<>();
+        try {
+            for (PositionIndex.Hit hit : positionIndex.find(key, 0, DATABASE_GAMES_SHOWN)) {
+                PgnGame game = positionIndex.game(hit.game());
+                games.add(game.tags().getOrDefault("White", "?") + " - "
+                        + game.tags().getOrDefault("Black", "?") + " " + game.result());
+            }
+        } catch (IOException e) {
+            games.clear();
         }
+        infoPanel.updateDatabaseHits(positionIndex.count(key), games);
+    }
+
+    /** Lets the engine start thinking if it is now its turn to move. */
+    public void requestAiMoveIfDue() {
+        if (engine == null || gameLogic == null || gameLogic.isPaused || !gameLogic.isAiTurn()) return;
+        SearchLimits limits = aiMoveLimits();
+        // Comparing keys also tells a ponder hit apart from the same move with another promotion piece.
+        if (engine.isPondering() && gameLogic.getPositionKey() == ponderKey && engine.ponderHit(limits)) return;
+        engine.start(gameLogic.getPosition(), limits, this::playAiMove);
+    }
+
+    // The clock only counts whole seconds of a turn, so the seconds shown are all the engine can spend.
+    private SearchLimits aiMoveLimits() {
+        int remaining = gameLogic.aiColor == PieceColor.WHITE ? whiteTimeSeconds : blackTimeSeconds;
+        if (remaining < 0) return aiLimits;
+        return TimeManager.allocate(aiLimits, remaining * 1000L, gameType, gameLogic.getPosition().fullmoveNumber());
+    }
+
+    /** Abandons the engine's current search, if any; its move will not be played. */
+    public void cancelAiMove() {
+        if (engine != null) engine.cancel();
+    }
+
+    private void playAiMove(SearchResult result) {
+        if (gameLogic == null || gameLogic.isPaused || !gameLogic.isAiTurn()) return;
+        if (result.bestMove() == PackedMove.NONE) return;
+        gameLogic.playMove(result.bestMove());
+        chessboardPanel.repaint();
+        ponder(result);
+    }
+
+    // Keeps searching on the reply the engine expects, while the player thinks about it.
+    private void ponder(SearchResult result) {
+        int[] line = result.principalVariation();
+        if (!SearchService.ponderingEnabled() || gameLogic.isGameOver || line.length < 2) return;
+        Position expected = gameLogic.getPosition().copy();
+        expected.make(line[1]);
+        ponderKey = expected.key();
+        engine.ponder(expected, aiLimits, this::playAiMove);
     }
 
     public void handleResignation() {
         // ... (Original content unchanged) ...
         if (gameLogic == null || gameLogic.isGameOver) return;
+        cancelAiMove();
         String resigningPlayer = gameLogic.currentPlayer == PieceColor.WHITE ? "White" : "Black";
         int choice = JOptionPane.showConfirmDialog(this,
                 resigningPlayer + ", are you sure you want to resign?",
@@ -207,6 +339,8 @@ public class GameContainerPanel extends JPanel {
         if (choice == JOptionPane.YES_OPTION) {
             String winner = resigningPlayer.equals("White") ? "Black" : "White";
             chessGame.handleGameOver(winner + " wins by resignation.");
+        } else {
+            requestAiMoveIfDue();
         }
     }
 
@@ -230,6 +364,13 @@ public class GameContainerPanel extends JPanel {
 
     public void handleUndoRequest() {
         if (gameLogic == null || gameLogic.isGameOver || gameLogic.moveHistory.isEmpty()) return;
+        if (engine != null) {
+            // Against the engine there is nobody to ask; take back the engine's reply as well.
+            engine.cancel();
+            undoLastMove();
+            if (gameLogic.isAiTurn() && !gameLogic.moveHistory.isEmpty()) undoLastMove();
+            return;
+        }
         String requestingPlayer = gameLogic.currentPlayer == PieceColor.WHITE ? "White" : "Black";
         String opponent = requestingPlayer.equals("White") ? "Black" : "White";
 
@@ -239,40 +380,44 @@ public class GameContainerPanel extends JPanel {
                 JOptionPane.YES_NO_OPTION);
 
         if (choice == JOptionPane.YES_OPTION) {
-            MoveRecord undoneRecord = gameLogic.undoLastMove(); // Get the undone record
-
-            // === ADDED: UI Update Block for Undo ===
-            if (undoneRecord != null) {
-                // Repaint the board
-                chessboardPanel.repaint();
-
-                // Update history panel
-                historyPanel.removeLastMove(undoneRecord.pgn());
-
-                // Update captured pieces panel
-                if (undoneRecord.capturedPiece() != null) {
-                    // Find the color of the player who made the move
-                    Piece movedPiece = gameLogic.board[undoneRecord.move().startRow()][undoneRecord.move().startCol()];
-                    if (movedPiece != null) {
-                        infoPanel.removeLastCapturedPiece(movedPiece.color());
-                    }
-                }
+            undoLastMove();
+        } else {
+            updateStatus("Undo request declined. " + requestingPlayer + "'s turn.");
+        }
+    }
 
-                // Update status label and timers
-                updateStatus(gameLogic.currentPlayer + "'s Turn");
-                if (gameLogic.currentPlayer == PieceColor.WHITE) {
-                    stopBlackTimer();
-                    startWhiteTimer();
-                } else {
-                    stopWhiteTimer();
-                    startBlackTimer();
+    private void undoLastMove() {
+        MoveRecord undoneRecord = gameLogic.undoLastMove(); // Get the undone record
+
+        // === ADDED: UI Update Block for Undo ===
+        if (undoneRecord != null) {
+            // Repaint the board
+            chessboardPanel.repaint();
+
+            // Update history panel
+            historyPanel.removeLastMove(undoneRecord.pgn());
+
+            // Update captured pieces panel
+            if (undoneRecord.capturedPiece() != null) {
+                // Find the color of the player who made the move
+                Piece movedPiece = gameLogic.pieceAt(undoneRecord.move().startRow(), undoneRecord.move().startCol());
+                if (movedPiece != null) {
+                    infoPanel.removeLastCapturedPiece(movedPiece.color());
                 }
             }
-            // === End of Added Block ===
 
-        } else {
-            updateStatus("Undo request declined. " + requestingPlayer + "'s turn.");
+            // Update status label and timers
+            updateStatus(gameLogic.currentPlayer + "'s Turn");
+            if (gameLogic.currentPlayer == PieceColor.WHITE) {
+                stopBlackTimer();
+                startWhiteTimer();
+            } else {
+                stopWhiteTimer();
+                startBlackTimer();
+            }
+            showDatabaseHits();
         }
+        // === End of Added Block ===
     }
 
 
@@ -309,6 +454,7 @@ public class GameContainerPanel extends JPanel {
     private void timeUp(String loser) {
         // ... (Original content unchanged) ...
         stopTimers();
+        cancelAiMove();
         if (gameLogic != null) gameLogic.isGameOver = true;
         String winner = loser.equals("White") ? "Black" : "White";
         chessGame.handleGameOver(winner + " wins on time!");
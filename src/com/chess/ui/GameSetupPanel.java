@@ -159,29 +159,22 @@ public class GameSetupPanel extends JPanel {
         
         // 3. The lambda now correctly uses 'this.chessGame'
         startGameButton.addActionListener(e -> {
+            String selectedTime = (String) timeControlSelector.getSelectedItem();
+            String gameType = "";
+            if (bulletButton.isSelected()) gameType = "Bullet";
+            else if (blitzButton.isSelected()) gameType = "Blitz";
+            else if (rapidButton.isSelected()) gameType = "Rapid";
+
+            String mode = humanButton.isSelected() ? "Human" : "AI";
+            String level = "N/A";
             if (aiButton.isSelected()) {
-                JOptionPane.showMessageDialog(this.chessGame,
-                        "This Feature will be Available soon...",
-                        "Feature Not Available",
-                        JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                String selectedTime = (String) timeControlSelector.getSelectedItem();
-                String gameType = "";
-                if (bulletButton.isSelected()) gameType = "Bullet";
-                else if (blitzButton.isSelected()) gameType = "Blitz";
-                else if (rapidButton.isSelected()) gameType = "Rapid";
-
-                String mode = humanButton.isSelected() ? "Human" : "AI";
-                String level = "N/A";
-                if (aiButton.isSelected()) {
-                    if (easyButton.isSelected()) level = "Easy";
-                    else if (mediumButton.isSelected()) level = "Medium";
-                    else level = "Hard";
-                }
+                if (easyButton.isSelected()) level = "Easy";
+                else if (mediumButton.isSelected()) level = "Medium";
+                else level = "Hard";
+            }
 
-                if (selectedTime != null) {
-                    this.chessGame.startGame(selectedTime, gameType, mode, level);
-                }
+            if (selectedTime != null) {
+                this.chessGame.startGame(selectedTime, gameType, mode, level);
             }
         });
         add(startGameButton, gbc);
@@ -6,6 +6,7 @@ import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.List;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 
@@ -14,6 +15,7 @@ public class InfoPanel extends JPanel {
     private final JLabel modeLabel;
     private final JPanel capturedByWhitePanel;
     private final JPanel capturedByBlackPanel;
+    private final JLabel databaseLabel;
     private final JButton pauseButton, resignButton, drawButton, undoButton;
     private final GameContainerPanel gameContainerPanel;
 
@@ -73,6 +75,14 @@ public class InfoPanel extends JPanel {
         add(createSectionTitle("Captured by Black"));
         capturedByBlackPanel = createStyledPanel();
         add(capturedByBlackPanel);
+        add(Box.createRigidArea(new Dimension(0, 10)));
+
+        add(createSectionTitle("Game Database"));
+        JPanel databasePanel = createStyledPanel();
+        databaseLabel = new JLabel("No position index");
+        styleInfoLabel(databaseLabel);
+        databasePanel.add(databaseLabel);
+        add(databasePanel);
 
         add(Box.createVerticalGlue());
     }
@@ -119,6 +129,15 @@ public class InfoPanel extends JPanel {
         }
     }
 
+    /** Shows how many archived games reached the board, and a few of them. */
+    public void updateDatabaseHits(long count, List<String> games) {
+        StringBuilder text = new StringBuilder("<html>").append(count).append(count == 1 ? " game" : " games");
+        for (String game : games) {
+            String shown = game.length() > 26 ? game.substring(0, 25) + "\u2026" : game;
+            text.append("<br>").append(shown.replace("&", "&amp;").replace("<", "&lt;"));
+        }
+        databaseLabel.setText(text.append("</html>").toString());
+    }
 
     public void reset() {
         turnLabel.setText("Turn: -");